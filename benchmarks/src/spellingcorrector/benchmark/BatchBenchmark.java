@@ -0,0 +1,86 @@
+package spellingcorrector.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.Engine;
+import spellingcorrector.SpellCorrector;
+import spellingcorrector.WordModel;
+import spellingcorrector.benchmark.SyntheticCorpus.QueryKind;
+
+/**
+ * SpellCorrector.correctAll() on a document-like batch [mostly known words, some misspellings, many repeats] by pool
+ * parallelism, to check how batch throughput scales with cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"1", "4", "16", "32"})
+    public int parallelism;
+
+    @Param({"10000"})
+    public int batchSize;
+
+    // percentage of misspelled tokens
+    @Param({"10"})
+    public int misspelledPercent;
+
+    private ForkJoinPool pool;
+    private SpellCorrector corrector;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(100000, 42);
+        File file = corpus.write(2000000);
+        WordModel model = WordModel.load(file.getPath(), Engine.EDITS);
+        pool = new ForkJoinPool(parallelism);
+        corrector = SpellCorrector.builder().model(model).pool(pool).build();
+
+        ArrayList<String> misspelled = new ArrayList<String>();
+        for (int length = 5; length <= 12; length++) {
+            misspelled.addAll(Arrays.asList(corpus.queries(model, length, QueryKind.EDIT1_HIT, 64)));
+            misspelled.addAll(Arrays.asList(corpus.queries(model, length, QueryKind.EDIT2_HIT, 64)));
+        }
+        Random random = new Random(42);
+        batch = new ArrayList<String>(batchSize);
+        List<String> words = corpus.words();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(random.nextInt(100) < misspelledPercent ? misspelled.get(random.nextInt(misspelled.size()))
+                    : words.get(Math.min(words.size() - 1, (int) Math.abs(random.nextGaussian() * 2000))));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<String> correctAll() {
+        return corrector.correctAll(batch);
+    }
+}
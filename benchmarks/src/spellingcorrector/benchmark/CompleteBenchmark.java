@@ -0,0 +1,74 @@
+package spellingcorrector.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.PrefixIndex;
+import spellingcorrector.Suggestion;
+
+/**
+ * Per-keystroke type-ahead: top 10 completions of a prefix of a dictionary word, and of the same prefix with one letter
+ * changed within edit distance 1. Sampled, so the results include p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompleteBenchmark {
+
+    private static final int K = 10;
+
+    @Param({"1", "3", "5"})
+    public int prefixLength;
+
+    @Param({"100000", "1000000"})
+    public int dictionarySize;
+
+    private PrefixIndex index;
+    private String[] prefixes;
+    private String[] misspelledPrefixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(dictionarySize, 42);
+        index = new PrefixIndex(corpus.table(dictionarySize * 20L));
+        Random random = new Random(42);
+        prefixes = new String[256];
+        misspelledPrefixes = new String[prefixes.length];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = corpus.words().get(random.nextInt(dictionarySize));
+            prefixes[i] = word.substring(0, Math.min(prefixLength, word.length()));
+            char[] misspelled = prefixes[i].toCharArray();
+            misspelled[random.nextInt(misspelled.length)] = (char) ('a' + random.nextInt(26));
+            misspelledPrefixes[i] = new String(misspelled);
+        }
+    }
+
+    @Benchmark
+    public List<Suggestion> exact() {
+        next = (next + 1) % prefixes.length;
+        return index.complete(prefixes[next], K);
+    }
+
+    @Benchmark
+    public List<Suggestion> fuzzy() {
+        next = (next + 1) % misspelledPrefixes.length;
+        return index.complete(misspelledPrefixes[next], K, 1);
+    }
+}
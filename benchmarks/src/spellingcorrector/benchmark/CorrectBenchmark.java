@@ -0,0 +1,87 @@
+package spellingcorrector.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.Engine;
+import spellingcorrector.WordModel;
+import spellingcorrector.benchmark.SyntheticCorpus.QueryKind;
+
+/**
+ * WordModel.correct() per outcome: known word, edit1 hit, edit2 hit and total miss, for every engine, word length and
+ * dictionary size. Each benchmark call corrects the next word of a fixed query set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorrectBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"EDITS", "SYMMETRIC_DELETE", "TRIE"})
+    public Engine engine;
+
+    @Param({"5", "9", "14"})
+    public int wordLength;
+
+    @Param({"10000", "100000"})
+    public int dictionarySize;
+
+    private WordModel model;
+    private String[] known;
+    private String[] edit1Hits;
+    private String[] edit2Hits;
+    private String[] misses;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(dictionarySize, 42);
+        File file = corpus.write(dictionarySize * 20L);
+        model = WordModel.load(file.getPath(), engine);
+        known = corpus.queries(model, wordLength, QueryKind.KNOWN, QUERIES);
+        edit1Hits = corpus.queries(model, wordLength, QueryKind.EDIT1_HIT, QUERIES);
+        edit2Hits = corpus.queries(model, wordLength, QueryKind.EDIT2_HIT, QUERIES);
+        misses = corpus.queries(model, wordLength, QueryKind.MISS, QUERIES);
+    }
+
+    @Benchmark
+    public String knownWord() {
+        return model.correct(next(known));
+    }
+
+    @Benchmark
+    public String edit1Hit() {
+        return model.correct(next(edit1Hits));
+    }
+
+    @Benchmark
+    public String edit2Hit() {
+        return model.correct(next(edit2Hits));
+    }
+
+    @Benchmark
+    public String miss() {
+        return model.correct(next(misses));
+    }
+
+    private String next(String[] queries) {
+        next = (next + 1) % queries.length;
+        return queries[next];
+    }
+}
@@ -0,0 +1,70 @@
+package spellingcorrector.benchmark;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.Engine;
+import spellingcorrector.WordModel;
+import spellingcorrector.benchmark.SyntheticCorpus.QueryKind;
+
+/**
+ * WordModel.addEdit1Candidates() on its own: all edit1 strings of a misspelling, and only the known ones
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EditCandidatesBenchmark {
+
+    @Param({"5", "9", "14"})
+    public int wordLength;
+
+    @Param({"10000", "100000"})
+    public int dictionarySize;
+
+    private WordModel model;
+    private String[] misspellings;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(dictionarySize, 42);
+        File file = corpus.write(dictionarySize * 20L);
+        model = WordModel.load(file.getPath(), Engine.EDITS);
+        misspellings = corpus.queries(model, wordLength, QueryKind.EDIT1_HIT, 64);
+    }
+
+    @Benchmark
+    public HashSet<String> allEdits() {
+        HashSet<String> candidates = new HashSet<String>();
+        model.addEdit1Candidates(next(), candidates, false);
+        return candidates;
+    }
+
+    @Benchmark
+    public HashSet<String> knownEdits() {
+        HashSet<String> candidates = new HashSet<String>();
+        model.addEdit1Candidates(next(), candidates, true);
+        return candidates;
+    }
+
+    private String next() {
+        next = (next + 1) % misspellings.length;
+        return misspellings[next];
+    }
+}
@@ -0,0 +1,99 @@
+package spellingcorrector.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.Engine;
+import spellingcorrector.WordModel;
+import spellingcorrector.benchmark.SyntheticCorpus.QueryKind;
+
+/**
+ * Edit2 hits with the EDITS engine, with and without the word table's Bloom filter, on large dictionaries. The cold
+ * variant reads a buffer larger than the last level cache before every call [untimed], so the table and filter come
+ * from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"true", "false"})
+    public boolean filter;
+
+    @Param({"5", "9"})
+    public int wordLength;
+
+    @Param({"100000", "1000000"})
+    public int dictionarySize;
+
+    private WordModel model;
+    private String[] edit2Hits;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(dictionarySize, 42);
+        File file = corpus.write(dictionarySize * 4L);
+        WordModel loaded = WordModel.load(file.getPath(), Engine.EDITS);
+        model = (filter ? loaded : new WordModel(loaded.table().withoutFilter(), Engine.EDITS));
+        edit2Hits = corpus.queries(loaded, wordLength, QueryKind.EDIT2_HIT, QUERIES);
+    }
+
+    /**
+     * A buffer read through before every call
+     */
+    @State(Scope.Thread)
+    public static class Evictor {
+
+        @Param({"64"})
+        public int evictMegabytes;
+
+        private long[] buffer;
+        public long sink;
+
+        @Setup
+        public void allocate() {
+            buffer = new long[evictMegabytes << 17];
+        }
+
+        @Setup(Level.Invocation)
+        public void evict() {
+            for (int i = 0; i < buffer.length; i += 8) {
+                sink += buffer[i]++;
+            }
+        }
+    }
+
+    @Benchmark
+    public String edit2Warm() {
+        return model.correct(next());
+    }
+
+    @Benchmark
+    public String edit2Cold(Evictor evictor) {
+        return model.correct(next());
+    }
+
+    private String next() {
+        next = (next + 1) % edit2Hits.length;
+        return edit2Hits[next];
+    }
+}
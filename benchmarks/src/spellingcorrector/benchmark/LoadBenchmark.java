@@ -0,0 +1,56 @@
+package spellingcorrector.benchmark;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spellingcorrector.CorpusLoader;
+import spellingcorrector.FrequencyTable;
+import spellingcorrector.WordModel;
+
+/**
+ * Word frequency loading [SpellCorrect.getWordFrequency()]: the parallel CorpusLoader against the single-threaded
+ * Scanner reference, on a synthetic corpus of dictionarySize distinct words and 50 x dictionarySize tokens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10000", "100000"})
+    public int dictionarySize;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws Exception {
+        file = new SyntheticCorpus(dictionarySize, 42).write(dictionarySize * 50L);
+    }
+
+    @Benchmark
+    public FrequencyTable parallelLoader() throws Exception {
+        return new CorpusLoader().countWords(file.getPath());
+    }
+
+    @Benchmark
+    public HashMap<String, Integer> scannerLoader() throws Exception {
+        HashMap<String, Integer> nWords = new HashMap<String, Integer>();
+        WordModel.addWordFrequency(file.getPath(), nWords);
+        return nWords;
+    }
+}
@@ -0,0 +1,183 @@
+package spellingcorrector.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import spellingcorrector.Engine;
+import spellingcorrector.FrequencyTable;
+import spellingcorrector.WordModel;
+
+/**
+ * Deterministic stand-in for big.txt so the benchmarks run offline.
+ * <p>
+ * Generates distinctWords pseudo-words of 3 to 16 letters [letters drawn with English letter frequencies] and writes
+ * a corpus in which word number r occurs about tokens / (r + 1) times [Zipf], mixed case and punctuated like real text.
+ */
+public class SyntheticCorpus {
+
+    private static final String LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final int[] LETTER_WEIGHTS = {127, 91, 82, 75, 70, 67, 63, 61, 60, 43, 40, 28, 28, 24, 24, 22, 20, 20, 19, 15, 10, 8, 2, 2, 1, 1};
+    public static final int MIN_LENGTH = 3;
+    public static final int MAX_LENGTH = 16;
+
+    /**
+     * How a query relates to the dictionary
+     */
+    public enum QueryKind {
+        KNOWN, EDIT1_HIT, EDIT2_HIT, MISS
+    }
+
+    private final Random random;
+    private final List<String> words = new ArrayList<String>();
+
+    public SyntheticCorpus(int distinctWords, long seed) {
+        random = new Random(seed);
+        HashSet<String> seen = new HashSet<String>();
+        while (words.size() < distinctWords) {
+            String word = randomWord(MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH + 1));
+            if (seen.add(word)) {
+                words.add(word);
+            }
+        }
+    }
+
+    // dictionary words, most frequent first
+    public List<String> words() {
+        return words;
+    }
+
+    /**
+     * Write about tokens words to a new temporary file, deleted on exit
+     */
+    public File write(long tokens) throws IOException {
+        File file = File.createTempFile("synthetic-corpus", ".txt");
+        file.deleteOnExit();
+        double harmonic = harmonic();
+
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            int onLine = 0;
+            for (int rank = 0; rank < words.size(); rank++) {
+                long count = Math.max(1, Math.round(tokens / harmonic / (rank + 1)));
+                String word = words.get(rank);
+                for (long i = 0; i < count; i++) {
+                    writer.write(i % 7 == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                    writer.write(i % 11 == 0 ? ", " : " ");
+                    if (++onLine == 12) {
+                        writer.write(".\n");
+                        onLine = 0;
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * The word counts of a corpus of about tokens words [as loaded from {@link #write}, without writing it]
+     */
+    public FrequencyTable table(long tokens) {
+        double harmonic = harmonic();
+        FrequencyTable.Builder table = new FrequencyTable.Builder(words.size());
+        for (int rank = 0; rank < words.size(); rank++) {
+            long count = Math.max(1, Math.round(tokens / harmonic / (rank + 1)));
+            table.add(words.get(rank), (int) Math.min(Integer.MAX_VALUE - 1, count) + 1);
+        }
+        return table.build();
+    }
+
+    private double harmonic() {
+        double harmonic = 0;
+        for (int rank = 1; rank <= words.size(); rank++) {
+            harmonic += 1.0 / rank;
+        }
+        return harmonic;
+    }
+
+    /**
+     * Up to count query words of the given length: known ones, unknown ones with a known word at distance 1, unknown ones
+     * whose closest known word is at distance 2, or unknown ones with nothing known within distance 2
+     */
+    public String[] queries(WordModel model, int length, QueryKind kind, int count) {
+        // distance 1 model to tell edit1 from edit2 hits
+        WordModel distance1 = new WordModel(model.table(), Engine.TRIE, 1);
+        List<String> queries = new ArrayList<String>();
+        for (int attempt = 0; queries.size() < count && attempt < count * 10000; attempt++) {
+            String query;
+            if (kind == QueryKind.MISS) {
+                // uniform letters: rare letters make a word far from everything much more likely
+                StringBuilder word = new StringBuilder(length);
+                for (int i = 0; i < length; i++) {
+                    word.append((char) ('a' + random.nextInt(26)));
+                }
+                query = word.toString();
+            } else {
+                query = words.get(random.nextInt(words.size()));
+                for (int i = 0; i < kind.ordinal(); i++) {
+                    query = edit(query);
+                }
+            }
+            if (query.length() != length) {
+                continue;
+            }
+
+            boolean known = model.isKnown(query);
+            boolean hasEdit1 = !known && !distance1.correct(query).equals(query);
+            boolean hasEdit2 = !known && !model.correct(query).equals(query);
+            if ((kind == QueryKind.KNOWN && known) || (kind == QueryKind.EDIT1_HIT && hasEdit1)
+                    || (kind == QueryKind.EDIT2_HIT && hasEdit2 && !hasEdit1) || (kind == QueryKind.MISS && !known && !hasEdit2)) {
+                queries.add(query);
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalStateException("no " + kind + " queries of length " + length);
+        }
+        return queries.toArray(new String[queries.size()]);
+    }
+
+    private String randomWord(int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(randomLetter());
+        }
+        return word.toString();
+    }
+
+    private char randomLetter() {
+        int total = 0;
+        for (int weight : LETTER_WEIGHTS) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < LETTER_WEIGHTS.length; i++) {
+            pick -= LETTER_WEIGHTS[i];
+            if (pick < 0) {
+                return LETTERS.charAt(i);
+            }
+        }
+        return 'e';
+    }
+
+    // one random deletion, transposition, alteration or insertion
+    private String edit(String word) {
+        int i = random.nextInt(word.length());
+        switch (random.nextInt(4)) {
+            case 0:
+                return word.substring(0, i) + word.substring(i + 1);
+            case 1:
+                return i + 1 < word.length() ? word.substring(0, i) + word.charAt(i + 1) + word.charAt(i) + word.substring(i + 2) : word;
+            case 2:
+                return word.substring(0, i) + randomLetter() + word.substring(i + 1);
+            default:
+                return word.substring(0, i) + randomLetter() + word.substring(i);
+        }
+    }
+}
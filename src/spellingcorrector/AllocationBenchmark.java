@@ -0,0 +1,56 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Heap bytes allocated and time per correct() call: the original candidate-set search
+ * [{@link WordModel#correctWithCandidateSets}] against the in-place {@link EditSearch}.
+ * <p>
+ * Allocation is read from the HotSpot per-thread allocation counter [com.sun.management.ThreadMXBean], so the figures
+ * include everything the call allocates, not just the candidate Strings. The misspellings are those of the
+ * {@link TestSets}.
+ * <pre>
+ * java spellingcorrector.AllocationBenchmark big.txt
+ * </pre>
+ */
+public class AllocationBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        WordModel model = WordModel.load(wordsFile, Engine.EDITS);
+
+        List<String> misspellings = TestSets.misspellings();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long bytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (String misspelling : misspellings) {
+                model.correctWithCandidateSets(misspelling);
+            }
+            report("round " + round + " candidate sets", misspellings.size(), System.nanoTime() - start,
+                    threads.getThreadAllocatedBytes(threadId) - bytes);
+
+            long probes = EditSearch.get().probes();
+            bytes = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (String misspelling : misspellings) {
+                model.correct(misspelling);
+            }
+            report("round " + round + " edit search   ", misspellings.size(), System.nanoTime() - start,
+                    threads.getThreadAllocatedBytes(threadId) - bytes);
+            System.out.println("    probes/call: " + (EditSearch.get().probes() - probes) / misspellings.size());
+        }
+    }
+
+    private static void report(String label, int calls, long nanos, long bytes) {
+        System.out.println(label + ": " + String.format("%8.1f", nanos / 1000.0 / calls) + " us/call, "
+                + String.format("%10d", bytes / calls) + " bytes/call");
+    }
+}
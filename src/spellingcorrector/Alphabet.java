@@ -0,0 +1,222 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The letters of a dictionary, most frequent first, and which letters ever follow each other in it.
+ * <p>
+ * Taken from the words of a {@link FrequencyTable}, so a model of any language edits with its own letters instead of a-z.
+ * A letter's weight is the summed frequency of its occurrences in dictionary words; letters are numbered 1 .. size() in
+ * that order, 0 stands for the start or end of a word. Every adjacent pair of letters in a dictionary word is recorded
+ * [start, first letter and last letter, end included], so an edit that puts a letter between two others that it never
+ * comes between cannot produce a known word - {@link EditSearch} only tries the letters of {@link #between} on its last
+ * edit and those of {@link #near} on the one before.
+ * <p>
+ * Immutable once built [the letter lists of large alphabets are cached as they are asked for]; the pairs take
+ * (size() + 1)^2 bits. Alphabets of up to {@link #MAX_TABULATED} letters keep the letter lists of every pair of
+ * neighbours in arrays, so the search pays one array load per edit position.
+ */
+public final class Alphabet {
+
+    // start or end of a word
+    public static final int BOUNDARY = 0;
+    static final int MAX_TABULATED = 63;
+    // lists of large alphabets cached at most
+    private static final int MAX_CACHED = 1 << 16;
+    private static final char[] NONE = new char[0];
+
+    // letter by number - 1
+    private final char[] letters;
+    // number of a letter, 0 if it is not in the alphabet [indexed by char, up to the largest letter]
+    private final char[] numbers;
+    private final int stride;
+    // bit a * stride + b is set when b follows a in some word
+    private final long[] pairs;
+    // between and near lists by a * stride + b [null for large alphabets]
+    private final char[][] between;
+    private final char[][] near;
+    // between [even keys] and near [odd keys] lists of large alphabets
+    private final ConcurrentHashMap<Long, char[]> cached;
+
+    private Alphabet(char[] letters, char[] numbers, long[] pairs) {
+        this.letters = letters;
+        this.numbers = numbers;
+        this.stride = letters.length + 1;
+        this.pairs = pairs;
+        if (letters.length <= MAX_TABULATED) {
+            between = new char[stride * stride][];
+            near = new char[stride * stride][];
+            for (int a = 0; a < stride; a++) {
+                for (int b = 0; b < stride; b++) {
+                    between[a * stride + b] = list(a, b, false);
+                    near[a * stride + b] = list(a, b, true);
+                }
+            }
+            cached = null;
+        } else {
+            between = null;
+            near = null;
+            cached = new ConcurrentHashMap<Long, char[]>();
+        }
+    }
+
+    /**
+     * Alphabet of the words of nWords
+     */
+    public static Alphabet of(FrequencyTable nWords) {
+        // letter weights
+        long[] weights = new long[Character.MAX_VALUE + 1];
+        int maxLetter = 0;
+        for (int id = 0; id < nWords.size(); id++) {
+            int frequency = nWords.frequency(id);
+            for (int i = 0; i < nWords.length(id); i++) {
+                char ch = nWords.charAt(id, i);
+                weights[ch] += frequency;
+                maxLetter = Math.max(maxLetter, ch);
+            }
+        }
+
+        // heaviest first, ties by character
+        int n = 0;
+        for (int ch = 0; ch <= maxLetter; ch++) {
+            if (weights[ch] > 0) {
+                n++;
+            }
+        }
+        Integer[] order = new Integer[n];
+        n = 0;
+        for (int ch = 0; ch <= maxLetter; ch++) {
+            if (weights[ch] > 0) {
+                order[n++] = ch;
+            }
+        }
+        final long[] w = weights;
+        Arrays.sort(order, (a, b) -> w[a] != w[b] ? Long.compare(w[b], w[a]) : Integer.compare(a, b));
+        char[] letters = new char[n];
+        char[] numbers = new char[n > 0 ? maxLetter + 1 : 0];
+        for (int i = 0; i < n; i++) {
+            letters[i] = (char) (int) order[i];
+            numbers[letters[i]] = (char) (i + 1);
+        }
+
+        // adjacent pairs
+        long stride = n + 1;
+        long[] pairs = new long[(int) ((stride * stride + 63) >>> 6)];
+        for (int id = 0; id < nWords.size(); id++) {
+            int previous = BOUNDARY;
+            for (int i = 0; i < nWords.length(id); i++) {
+                int number = numbers[nWords.charAt(id, i)];
+                set(pairs, previous * stride + number);
+                previous = number;
+            }
+            set(pairs, previous * stride + BOUNDARY);
+        }
+        return new Alphabet(letters, numbers, pairs);
+    }
+
+    // letters, numbers and pairs as they are [see ModelSnapshot]; the lists are not stored
+    void write(DataOutputStream out) throws IOException {
+        ModelSnapshot.writeChars(out, letters);
+        ModelSnapshot.writeChars(out, numbers);
+        ModelSnapshot.writeLongs(out, pairs);
+    }
+
+    // alphabet written by write()
+    static Alphabet read(ByteBuffer in) throws IOException {
+        char[] letters = ModelSnapshot.readChars(in);
+        char[] numbers = ModelSnapshot.readChars(in);
+        long[] pairs = ModelSnapshot.readLongs(in);
+        long stride = letters.length + 1;
+        if (pairs.length != (stride * stride + 63) >>> 6) {
+            throw new IOException("corrupt alphabet");
+        }
+        for (int i = 0; i < letters.length; i++) {
+            if (letters[i] >= numbers.length || numbers[letters[i]] != i + 1) {
+                throw new IOException("corrupt alphabet");
+            }
+        }
+        return new Alphabet(letters, numbers, pairs);
+    }
+
+    private static void set(long[] bits, long bit) {
+        bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+
+    // number of letters
+    public int size() {
+        return letters.length;
+    }
+
+    // letter number 1 .. size()
+    public char letter(int number) {
+        return letters[number - 1];
+    }
+
+    // number of ch, -1 if no dictionary word has it
+    public int number(char ch) {
+        return ch < numbers.length && numbers[ch] != 0 ? numbers[ch] : -1;
+    }
+
+    // letter number b comes right after letter number a in some word [either may be BOUNDARY]
+    public boolean follows(int a, int b) {
+        long bit = (long) a * stride + b;
+        return (pairs[(int) (bit >>> 6)] & 1L << bit) != 0;
+    }
+
+    /**
+     * The letters that come right after letter number a and right before letter number b in some word, most frequent
+     * first [either may be BOUNDARY, -1 for a character outside the alphabet: none]; do not modify
+     */
+    char[] between(int a, int b) {
+        if (a < 0 || b < 0) {
+            return NONE;
+        }
+        return between != null ? between[a * stride + b] : cachedList(a, b, false);
+    }
+
+    /**
+     * The letters that come right before or after letter number a or letter number b in some word, most frequent first
+     * [-1 for a character outside the alphabet: that side adds none]; do not modify
+     */
+    char[] near(int a, int b) {
+        if (a < 0 && b < 0) {
+            return NONE;
+        }
+        a = (a >= 0 ? a : b);
+        b = (b >= 0 ? b : a);
+        return near != null ? near[a * stride + b] : cachedList(a, b, true);
+    }
+
+    private char[] cachedList(int a, int b, boolean near) {
+        Long key = ((long) a * stride + b) * 2 + (near ? 1 : 0);
+        char[] list = cached.get(key);
+        if (list == null) {
+            list = list(a, b, near);
+            if (cached.size() < MAX_CACHED) {
+                cached.put(key, list);
+            }
+        }
+        return list;
+    }
+
+    private char[] list(int a, int b, boolean near) {
+        char[] list = new char[letters.length];
+        int count = 0;
+        for (int x = 1; x < stride; x++) {
+            if (near ? follows(a, x) || follows(x, a) || follows(b, x) || follows(x, b) : follows(a, x) && follows(x, b)) {
+                list[count++] = letters[x - 1];
+            }
+        }
+        return Arrays.copyOf(list, count);
+    }
+
+    // the letters, most frequent first
+    @Override
+    public String toString() {
+        return new String(letters);
+    }
+}
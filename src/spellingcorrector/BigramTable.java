@@ -0,0 +1,201 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Word pair -> count table for a bigram language model, without per-entry objects.
+ * <p>
+ * Words are the entry numbers of a {@link FrequencyTable} [see {@link FrequencyTable#id(String)}]; a pair is packed into
+ * one long key (previous id + 1 in the high half, id + 1 in the low half, so 0 marks an empty slot) in an
+ * open-addressing table with linear probing - 12 bytes per slot, at most half the slots used.
+ * A table is only valid with the word table whose ids it uses, and read-only once built [see {@link Builder}].
+ */
+public final class BigramTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    private BigramTable(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private BigramTable(long[] keys, int[] counts, int size) {
+        this.keys = keys;
+        this.counts = counts;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    static long key(int previousId, int id) {
+        return ((long) (previousId + 1) << 32) | ((id + 1) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Number of times word id followed word previousId, 0 if never [or either is -1]
+     */
+    public int get(int previousId, int id) {
+        if (previousId < 0 || id < 0) {
+            return 0;
+        }
+        long key = key(previousId, id);
+        for (int slot = mix(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by this table's arrays [array headers included, table object itself excluded]
+     */
+    public long memoryBytes() {
+        return FrequencyTable.arrayBytes(keys.length, 8) + FrequencyTable.arrayBytes(counts.length, 4);
+    }
+
+    /**
+     * The same pairs with the ids of to instead of from [both word tables of the same vocabulary or a part of it];
+     * pairs with a word not in to are dropped
+     */
+    public BigramTable remap(FrequencyTable from, FrequencyTable to) {
+        Builder builder = new Builder(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                int previousId = to.id(from.word((int) (keys[slot] >>> 32) - 1));
+                int id = to.id(from.word((int) keys[slot] - 1));
+                if (previousId >= 0 && id >= 0) {
+                    builder.add(previousId, id, counts[slot]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        ModelSnapshot.writeLongs(out, keys);
+        ModelSnapshot.writeInts(out, counts);
+    }
+
+    static BigramTable read(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        long[] keys = ModelSnapshot.readLongs(in);
+        int[] counts = ModelSnapshot.readInts(in);
+        if (Integer.bitCount(keys.length) != 1 || counts.length != keys.length || size < 0 || size * 2 > keys.length) {
+            throw new IOException("corrupt bigram table");
+        }
+        return new BigramTable(keys, counts, size);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void add(long key, int count) {
+        int slot = mix(key) & mask;
+        for (; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Accumulates pair counts; {@link #build()} hands out the finished table and the builder can not be used afterwards
+     */
+    public static class Builder {
+
+        private BigramTable table;
+
+        public Builder() {
+            this(INITIAL_CAPACITY);
+        }
+
+        public Builder(int expectedSize) {
+            table = new BigramTable(expectedSize);
+        }
+
+        // add count to the pair [previousId, id]
+        public Builder add(int previousId, int id, int count) {
+            table.add(key(previousId, id), count);
+            return this;
+        }
+
+        // add all counts of other
+        public Builder addAll(BigramTable other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != 0) {
+                    table.add(other.keys[slot], other.counts[slot]);
+                }
+            }
+            return this;
+        }
+
+        public int size() {
+            return table.size;
+        }
+
+        public BigramTable build() {
+            return build(1);
+        }
+
+        /**
+         * Table of the pairs seen at least minCount times [pruning rare pairs bounds the table on large corpora]
+         */
+        public BigramTable build(int minCount) {
+            BigramTable built = table;
+            table = null;
+            if (minCount <= 1) {
+                return built;
+            }
+            BigramTable pruned = new BigramTable(built.size / 2);
+            for (int slot = 0; slot < built.keys.length; slot++) {
+                if (built.keys[slot] != 0 && built.counts[slot] >= minCount) {
+                    pruned.add(built.keys[slot], built.counts[slot]);
+                }
+            }
+            return pruned;
+        }
+    }
+}
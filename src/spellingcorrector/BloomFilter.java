@@ -0,0 +1,100 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Blocked Bloom filter over the String.hashCode() of a {@link FrequencyTable}'s words: rules out most strings that are
+ * not words from one long of an array about a twentieth the size of the table, before the table itself is touched.
+ * <p>
+ * A word sets {@link #HASHES} bits of one 64-bit block, all picked from its mixed hash, so a probe is a single memory
+ * read and takes the hash a search already has [see {@link EditSearch}] - nothing is hashed twice. At
+ * {@link #BITS_PER_WORD} bits per word about 1% of non-words get through [words with the hash of a known word always
+ * do]; see {@link FilterReport}. Immutable, built with the table and stored with it in snapshots; the blocks of a
+ * mapped table's filter stay in the mapped file.
+ */
+final class BloomFilter {
+
+    static final int BITS_PER_WORD = 12;
+    static final int HASHES = 4;
+
+    // one of blocks and mapped is null
+    private final long[] blocks;
+    private final LongBuffer mapped;
+    private final int length;
+
+    /**
+     * Filter of the first count hashes
+     */
+    BloomFilter(int[] hashes, int count) {
+        blocks = new long[Math.max(1, (int) (((long) count * BITS_PER_WORD + 63) >>> 6))];
+        mapped = null;
+        length = blocks.length;
+        for (int i = 0; i < count; i++) {
+            long mixed = mix(hashes[i]);
+            blocks[block(mixed)] |= bits(mixed);
+        }
+    }
+
+    private BloomFilter(long[] blocks, LongBuffer mapped) {
+        this.blocks = blocks;
+        this.mapped = mapped;
+        this.length = (blocks != null ? blocks.length : mapped.capacity());
+    }
+
+    // false: no word has this hash; true: some word may
+    boolean mightContain(int hash) {
+        long mixed = mix(hash);
+        long bits = bits(mixed);
+        int block = block(mixed);
+        return ((blocks != null ? blocks[block] : mapped.get(block)) & bits) == bits;
+    }
+
+    // bytes of the blocks, on the heap or mapped
+    long memoryBytes() {
+        return blocks != null ? FrequencyTable.arrayBytes(length, 8) : 8L * length;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        if (blocks != null) {
+            ModelSnapshot.writeLongs(out, blocks);
+        } else {
+            ModelSnapshot.writeLongs(out, mapped);
+        }
+    }
+
+    static BloomFilter read(ByteBuffer in) throws IOException {
+        return checked(new BloomFilter(ModelSnapshot.readLongs(in), null));
+    }
+
+    // filter whose blocks are a view of the mapped snapshot
+    static BloomFilter map(ModelSnapshot.Mapping in) throws IOException {
+        return checked(new BloomFilter(null, in.longs()));
+    }
+
+    private static BloomFilter checked(BloomFilter filter) throws IOException {
+        if (filter.length == 0) {
+            throw new IOException("corrupt filter");
+        }
+        return filter;
+    }
+
+    // splitmix64 finalizer: the high half picks the block, the low 24 bits the bits
+    private static long mix(int hash) {
+        long z = hash * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // [0, blocks.length) by multiply-shift, any length
+    private int block(long mixed) {
+        return (int) (((mixed >>> 32) * length) >>> 32);
+    }
+
+    private static long bits(long mixed) {
+        return 1L << mixed | 1L << (mixed >>> 6) | 1L << (mixed >>> 12) | 1L << (mixed >>> 18);
+    }
+}
@@ -0,0 +1,74 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Accuracy on the {@link TestSets} against memory and speed for compacted models [see {@link WordModel#compacted}]:
+ * the full model, its frequencies quantized to 16 and 8 bits, words pruned by minimum count and by top-N, and pruning
+ * and quantization together. Per setting: words, bytes of the word table and of the frequency bounds, bad corrections
+ * and misspellings whose correct word was dropped [unknown] per test set, mean us per correction and ns per
+ * {@link FrequencyTable#get(String)} of the test words. The words are counted once; every setting compacts that model,
+ * after a warm-up with the full and the 8-bit table.
+ * <pre>
+ * java spellingcorrector.CompactReport big.txt [engine] [rounds]
+ * </pre>
+ */
+public class CompactReport {
+
+    // label, min count, max words, frequency bits
+    private static final Object[][] SETTINGS = {
+            {"full", 1, Integer.MAX_VALUE, 32},
+            {"16 bits", 1, Integer.MAX_VALUE, 16},
+            {"8 bits", 1, Integer.MAX_VALUE, 8},
+            {"min 2", 2, Integer.MAX_VALUE, 32},
+            {"min 3", 3, Integer.MAX_VALUE, 32},
+            {"min 5", 5, Integer.MAX_VALUE, 32},
+            {"min 10", 10, Integer.MAX_VALUE, 32},
+            {"top 20000", 1, 20000, 32},
+            {"top 10000", 1, 10000, 32},
+            {"top 5000", 1, 5000, 32},
+            {"min 2, 8 bits", 2, Integer.MAX_VALUE, 8},
+            {"top 10000, 8 bits", 1, 10000, 8},
+    };
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1].toUpperCase()) : Engine.EDITS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        WordModel full = WordModel.load(wordsFile, engine);
+        List<String> lookups = TestSets.words();
+        // JIT warm-up, so the first setting is not timed cold
+        Evaluation.run("warm-up", full.compacted(1, Integer.MAX_VALUE, 8), "test1", TestSets.test1());
+        lookupNanos(full.table(), lookups, rounds);
+        lookupNanos(full.table().quantized(8), lookups, rounds);
+        System.out.println(String.format("%-18s %7s %11s %11s %9s %9s %8s %8s %10s", "setting", "words", "table bytes",
+                "bounds bytes", "test1 bad", "test2 bad", "us/word", "lookup ns", "accuracy"));
+        for (Object[] setting : SETTINGS) {
+            WordModel model = full.compacted((Integer) setting[1], (Integer) setting[2], (Integer) setting[3]);
+            Evaluation.Result test1 = Evaluation.run((String) setting[0], model, "test1", TestSets.test1());
+            Evaluation.Result test2 = Evaluation.run((String) setting[0], model, "test2", TestSets.test2());
+            double microsPerWord = (test1.wallNanos() + test2.wallNanos()) / 1000.0 / (test1.n() + test2.n());
+            double lookupNanos = lookupNanos(model.table(), lookups, rounds);
+            double accuracy = 100.0 * (test1.n() - test1.bad() + test2.n() - test2.bad()) / (test1.n() + test2.n());
+            System.out.println(String.format("%-18s %7d %11d %11d %4d (%2d) %4d (%2d) %8.1f %9.1f %9.1f%%", setting[0],
+                    model.size(), model.table().memoryBytes(), model.bounds().memoryBytes(), test1.bad(), test1.unknown(),
+                    test2.bad(), test2.unknown(), microsPerWord, lookupNanos, accuracy));
+        }
+    }
+
+    // time of a lookup in the fastest of rounds rounds over words [the others are disturbed by GC and JIT]
+    private static double lookupNanos(FrequencyTable table, List<String> words, int rounds) {
+        long sink = 0;
+        long fastest = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (String word : words) {
+                sink += table.get(word);
+            }
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return sink == Long.MIN_VALUE ? 0 : (double) fastest / words.size();
+    }
+}
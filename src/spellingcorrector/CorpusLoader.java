@@ -0,0 +1,364 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Parallel word counter for large corpora.
+ * <p>
+ * The file is memory-mapped and cut into chunks that start and end on a delimiter byte, so no word spans two chunks.
+ * Chunks are tokenized on a fork-join pool by a hand-written scanner into per-chunk {@link FrequencyTable}s [no String
+ * or Integer per token], which are merged pairwise.
+ * The result is the same as {@link WordModel#addWordFrequency} on a UTF-8 file: every maximal run of a-z after
+ * lowercasing is a word, and every word's count is seeded with 1 [smoothing].
+ * <p>
+ * Word pairs for a {@link BigramTable} are counted by a second pass over the same chunks, once the word ids are known;
+ * the pair spanning two chunks is not counted.
+ * <p>
+ * A unicode loader reads words of any alphabet instead: every maximal run of letters [Character.isLetter, basic
+ * multilingual plane] of the UTF-8 file, lowercased letter by letter. Its table becomes wide once a letter beyond Latin-1
+ * is seen [see {@link FrequencyTable}]; malformed bytes and supplementary characters are delimiters.
+ */
+public class CorpusLoader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    // letters of any alphabet rather than a-z only
+    private final boolean unicode;
+
+    public CorpusLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public CorpusLoader(ForkJoinPool pool, int chunkSize) {
+        this(pool, chunkSize, false);
+    }
+
+    public CorpusLoader(ForkJoinPool pool, int chunkSize, boolean unicode) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.unicode = unicode;
+    }
+
+    /**
+     * P(c) [language model] - frequency of all alphabetic words (converted to lowercase) in wordsFile, plus 1 [smoothing]
+     */
+    public FrequencyTable countWords(String wordsFile) throws IOException {
+        return countWords(wordsFile, 0, 1);
+    }
+
+    /**
+     * countWords for the words shard [of shards] owns [see {@link ShardedCorrector#shardOf}]; the others are skipped as
+     * they are scanned, so the whole vocabulary is never held
+     */
+    public FrequencyTable countWords(String wordsFile, final int shard, final int shards) throws IOException {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("shard " + shard + " not in [0, " + shards + ")");
+        }
+        RandomAccessFile file = new RandomAccessFile(wordsFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long[] bounds = chunkBounds(channel);
+            ChunkTask<FrequencyTable.Builder> count = new ChunkTask<FrequencyTable.Builder>(channel, bounds, 0, bounds.length - 1,
+                    chunk -> unicode ? countUnicodeChunk(chunk, shard, shards) : countChunk(chunk, shard, shards), CorpusLoader::merge);
+            return pool.invoke(count).addToAll(1).build();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Number of times each pair of words of nWords follows each other in wordsFile [nWords counted from wordsFile];
+     * pairs seen fewer than minCount times are dropped
+     */
+    public BigramTable countBigrams(String wordsFile, final FrequencyTable nWords, int minCount) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(wordsFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long[] bounds = chunkBounds(channel);
+            ChunkTask<BigramTable.Builder> count = new ChunkTask<BigramTable.Builder>(channel, bounds, 0, bounds.length - 1,
+                    chunk -> unicode ? countUnicodeBigramChunk(chunk, nWords) : countBigramChunk(chunk, nWords), CorpusLoader::merge);
+            return pool.invoke(count).build(minCount);
+        } finally {
+            file.close();
+        }
+    }
+
+    // chunk i is [bounds[i], bounds[i + 1]); every inner bound is an ASCII delimiter byte [never inside a UTF-8 sequence]
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ArrayList<Long> bounds = new ArrayList<Long>();
+        bounds.add(0L);
+
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            // move forward to the next delimiter so the word at the nominal split point stays in one chunk
+            long bound = size;
+            search:
+            while (position < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (isAsciiDelimiter(window.get(i))) {
+                        bound = position + i;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            if (bound - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE) {
+                throw new IOException("word too long to split corpus at offset " + bounds.get(bounds.size() - 1));
+            }
+            if (bound < size) {
+                bounds.add(bound);
+            }
+            position = bound + chunkSize;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static boolean isAsciiDelimiter(byte b) {
+        return b >= 0 && !(b >= 'a' && b <= 'z') && !(b >= 'A' && b <= 'Z');
+    }
+
+    /**
+     * Count chunks [from, to), splitting the range in halves until a single chunk is left
+     */
+    private static class ChunkTask<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final Function<MappedByteBuffer, T> counter;
+        private final BinaryOperator<T> merger;
+
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to, Function<MappedByteBuffer, T> counter, BinaryOperator<T> merger) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.counter = counter;
+            this.merger = merger;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= 1) {
+                try {
+                    return counter.apply(channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], bounds[to] - bounds[from]));
+                } catch (IOException e) {
+                    throw new RuntimeException("failed to map corpus chunk " + from, e);
+                }
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask<T> right = new ChunkTask<T>(channel, bounds, middle, to, counter, merger);
+            right.fork();
+            T counts = new ChunkTask<T>(channel, bounds, from, middle, counter, merger).compute();
+            return merger.apply(counts, right.join());
+        }
+    }
+
+    private static FrequencyTable.Builder merge(FrequencyTable.Builder left, FrequencyTable.Builder right) {
+        if (left.size() < right.size()) {
+            return right.addAll(left.build());
+        }
+        return left.addAll(right.build());
+    }
+
+    private static BigramTable.Builder merge(BigramTable.Builder left, BigramTable.Builder right) {
+        if (left.size() < right.size()) {
+            return right.addAll(left.build());
+        }
+        return left.addAll(right.build());
+    }
+
+    /**
+     * Receives the words of a chunk in order, as lowercase Latin-1 bytes in word[0, length) [word is reused]
+     */
+    interface WordSink {
+        void word(byte[] word, int length);
+    }
+
+    /**
+     * Receives the words of a chunk in order, as lowercase characters in word[0, length) [word is reused]
+     */
+    interface CharWordSink {
+        void word(char[] word, int length);
+    }
+
+    // words of chunk that shard [of shards] owns
+    static FrequencyTable.Builder countChunk(MappedByteBuffer chunk, final int shard, final int shards) {
+        final FrequencyTable.Builder counts = new FrequencyTable.Builder();
+        scanChunk(chunk, new WordSink() {
+            @Override
+            public void word(byte[] word, int length) {
+                if (shards == 1 || ShardedCorrector.shardOf(word, length, shards) == shard) {
+                    counts.add(word, 0, length, 1);
+                }
+            }
+        });
+        return counts;
+    }
+
+    static BigramTable.Builder countBigramChunk(MappedByteBuffer chunk, final FrequencyTable nWords) {
+        final BigramTable.Builder counts = new BigramTable.Builder();
+        scanChunk(chunk, new WordSink() {
+            int previousId = -1;
+
+            @Override
+            public void word(byte[] word, int length) {
+                int id = nWords.id(word, 0, length);
+                if (previousId >= 0 && id >= 0) {
+                    counts.add(previousId, id, 1);
+                }
+                previousId = id;
+            }
+        });
+        return counts;
+    }
+
+    static FrequencyTable.Builder countUnicodeChunk(MappedByteBuffer chunk, final int shard, final int shards) {
+        final FrequencyTable.Builder counts = new FrequencyTable.Builder();
+        scanUnicodeChunk(chunk, new CharWordSink() {
+            @Override
+            public void word(char[] word, int length) {
+                if (shards == 1 || ShardedCorrector.shardOf(word, length, shards) == shard) {
+                    counts.add(word, 0, length, 1);
+                }
+            }
+        });
+        return counts;
+    }
+
+    static BigramTable.Builder countUnicodeBigramChunk(MappedByteBuffer chunk, final FrequencyTable nWords) {
+        final BigramTable.Builder counts = new BigramTable.Builder();
+        scanUnicodeChunk(chunk, new CharWordSink() {
+            int previousId = -1;
+
+            @Override
+            public void word(char[] word, int length) {
+                int id = nWords.id(word, 0, length, FrequencyTable.hash(word, 0, length));
+                if (previousId >= 0 && id >= 0) {
+                    counts.add(previousId, id, 1);
+                }
+                previousId = id;
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Tokenize one chunk: ASCII letters are lowercased, everything else is a delimiter, except the two non-ASCII
+     * characters String.toLowerCase() maps to a-z: KELVIN SIGN [U+212A -> k] and LATIN CAPITAL LETTER I WITH DOT ABOVE
+     * [U+0130 -> i + combining dot, which ends the word]
+     */
+    static void scanChunk(MappedByteBuffer chunk, WordSink sink) {
+        byte[] word = new byte[64];
+        int length = 0;
+        int limit = chunk.limit();
+
+        for (int i = 0; i < limit; i++) {
+            byte b = chunk.get(i);
+            byte letter = 0;
+            boolean endsWord = false;
+            if (b >= 'a' && b <= 'z') {
+                letter = b;
+            } else if (b >= 'A' && b <= 'Z') {
+                letter = (byte) (b + ('a' - 'A'));
+            } else if (b == (byte) 0xE2 && i + 2 < limit && chunk.get(i + 1) == (byte) 0x84 && chunk.get(i + 2) == (byte) 0xAA) {
+                letter = 'k';
+                i += 2;
+            } else if (b == (byte) 0xC4 && i + 1 < limit && chunk.get(i + 1) == (byte) 0xB0) {
+                letter = 'i';
+                endsWord = true;
+                i += 1;
+            }
+
+            if (letter != 0) {
+                if (length == word.length) {
+                    byte[] grown = new byte[length * 2];
+                    System.arraycopy(word, 0, grown, 0, length);
+                    word = grown;
+                }
+                word[length++] = letter;
+            }
+            if ((letter == 0 || endsWord) && length > 0) {
+                sink.word(word, length);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            sink.word(word, length);
+        }
+    }
+
+    /**
+     * Tokenize one chunk of UTF-8: one-, two- and three-byte sequences are decoded, letters are lowercased one by one,
+     * everything else is a delimiter
+     */
+    static void scanUnicodeChunk(MappedByteBuffer chunk, CharWordSink sink) {
+        char[] word = new char[64];
+        int length = 0;
+        int limit = chunk.limit();
+
+        for (int i = 0; i < limit; i++) {
+            int b = chunk.get(i);
+            int ch = -1;
+            if (b >= 0) {
+                ch = b;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < limit && isContinuation(chunk.get(i + 1))) {
+                ch = (b & 0x1F) << 6 | (chunk.get(i + 1) & 0x3F);
+                i += 1;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < limit && isContinuation(chunk.get(i + 1)) && isContinuation(chunk.get(i + 2))) {
+                ch = (b & 0x0F) << 12 | (chunk.get(i + 1) & 0x3F) << 6 | (chunk.get(i + 2) & 0x3F);
+                i += 2;
+            }
+
+            if (ch >= 0 && Character.isLetter((char) ch)) {
+                if (length == word.length) {
+                    char[] grown = new char[length * 2];
+                    System.arraycopy(word, 0, grown, 0, length);
+                    word = grown;
+                }
+                word[length++] = Character.toLowerCase((char) ch);
+            } else if (length > 0) {
+                sink.word(word, length);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            sink.word(word, length);
+        }
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
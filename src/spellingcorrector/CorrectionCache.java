@@ -0,0 +1,334 @@
+package spellingcorrector;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of corrections for misspelled words, with a W-TinyLFU admission policy
+ * [Einziger et al., "TinyLFU: A Highly Efficient Cache Admission Policy"].
+ * <p>
+ * The cache is split into segments by key hash, each guarded by its own lock. A segment has a small LRU window that
+ * takes every new entry and a main LRU area that only admits an entry evicted from the window if it has been looked up
+ * more often than the main area's own eviction victim. Lookup counts are estimated by a per-segment count-min sketch
+ * with 4-bit counters that are halved periodically, so one-off misspellings can not flush the frequent ones.
+ * <p>
+ * Words with no known correction are cached too [negative entries] unless disabled. Entries are only valid for the model
+ * they were computed on: {@link #invalidateAll()} drops them all, and a put carrying the generation of an earlier model
+ * is ignored [see {@link SpellCorrector#correct(String)}].
+ */
+public class CorrectionCache {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int WINDOW_PERCENT = 1;
+
+    private final Segment[] segments;
+    private final boolean weighByBytes;
+    private final boolean cacheNegatives;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private CorrectionCache(long maximumWeight, boolean weighByBytes, boolean cacheNegatives) {
+        this.weighByBytes = weighByBytes;
+        this.cacheNegatives = cacheNegatives;
+        int segmentCount = (int) Math.max(1, Math.min(DEFAULT_SEGMENTS, maximumWeight / 64));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maximumWeight / segmentCount);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Cached correction of a lowercased word, null if it is not cached
+     */
+    public String get(String word) {
+        Entry entry = segmentFor(word).get(word);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (entry.negative) {
+            negativeHits.increment();
+        }
+        return entry.correction;
+    }
+
+    // read before computing a correction, pass to put()
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the correction of a lowercased word, computed while {@link #generation()} was generation.
+     * negative: the word is unknown and has no known correction.
+     */
+    public void put(String word, String correction, boolean negative, long generation) {
+        if (negative && !cacheNegatives) {
+            return;
+        }
+        segmentFor(word).put(word, new Entry(correction, negative, weigh(word, correction)), generation);
+    }
+
+    /**
+     * Drop all entries, e.g. because the model has been replaced; puts of corrections computed before are ignored
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    // hits on words with no known correction [included in hitCount()]
+    public long negativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    // entries removed from the main area to make room
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // entries that left the window but lost against the main area's victim
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hitCount();
+        long requests = hitCount + missCount();
+        return "{'hits': " + hitCount + ", 'negative hits': " + negativeHitCount() + ", 'misses': " + missCount()
+                + ", 'hit rate': " + (requests == 0 ? 0 : (int) (100.0 * hitCount / requests))
+                + ", 'evictions': " + evictionCount() + ", 'rejections': " + rejectionCount() + ", 'size': " + size() + "}";
+    }
+
+    private Segment segmentFor(String word) {
+        int hash = word.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    // approximate heap bytes of an entry [two compact Strings, the entry, a LinkedHashMap node] or 1 when counting entries
+    private long weigh(String word, String correction) {
+        return weighByBytes ? 2 * 40 + word.length() + correction.length() + 24 + 40 : 1;
+    }
+
+    private static final class Entry {
+
+        final String correction;
+        final boolean negative;
+        final long weight;
+
+        Entry(String correction, boolean negative, long weight) {
+            this.correction = correction;
+            this.negative = negative;
+            this.weight = weight;
+        }
+    }
+
+    private final class Segment {
+
+        private final LinkedHashMap<String, Entry> window = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        private final LinkedHashMap<String, Entry> main = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        private final long maximumWindowWeight;
+        private final long maximumMainWeight;
+        private final FrequencySketch sketch;
+        private long windowWeight;
+        private long mainWeight;
+
+        Segment(long maximumWeight) {
+            maximumWindowWeight = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+            maximumMainWeight = Math.max(1, maximumWeight - maximumWindowWeight);
+            sketch = new FrequencySketch(weighByBytes ? maximumWeight / 128 : maximumWeight);
+        }
+
+        synchronized Entry get(String word) {
+            sketch.increment(word);
+            Entry entry = window.get(word);
+            return entry != null ? entry : main.get(word);
+        }
+
+        synchronized void put(String word, Entry entry, long entryGeneration) {
+            if (entryGeneration != generation.get()) {
+                return;
+            }
+            Entry previous = main.remove(word);
+            if (previous != null) {
+                mainWeight -= previous.weight;
+            }
+            previous = window.put(word, entry);
+            windowWeight += entry.weight - (previous != null ? previous.weight : 0);
+
+            // move the window's eldest entries into main, each one competing with main's eldest
+            while (windowWeight > maximumWindowWeight && window.size() > 1) {
+                Iterator<Map.Entry<String, Entry>> eldest = window.entrySet().iterator();
+                Map.Entry<String, Entry> candidate = eldest.next();
+                eldest.remove();
+                windowWeight -= candidate.getValue().weight;
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        private void admit(String word, Entry entry) {
+            int frequency = sketch.frequency(word);
+            while (mainWeight + entry.weight > maximumMainWeight && !main.isEmpty()) {
+                Iterator<Map.Entry<String, Entry>> eldest = main.entrySet().iterator();
+                Map.Entry<String, Entry> victim = eldest.next();
+                if (frequency <= sketch.frequency(victim.getKey())) {
+                    rejections.increment();
+                    return;
+                }
+                eldest.remove();
+                mainWeight -= victim.getValue().weight;
+                evictions.increment();
+            }
+            if (mainWeight + entry.weight <= maximumMainWeight) {
+                main.put(word, entry);
+                mainWeight += entry.weight;
+            } else {
+                rejections.increment();
+            }
+        }
+
+        synchronized void clear() {
+            window.clear();
+            main.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+        }
+
+        synchronized int size() {
+            return window.size() + main.size();
+        }
+    }
+
+    /**
+     * Count-min sketch of lookup counts: 4 rows of saturating 4-bit counters packed into longs, all halved after
+     * 10 x capacity increments so old popularity fades [guarded by the owning segment's lock]
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0x97cb3127L, 0xc2b2ae35L, 0x85ebca6bL, 0x27d4eb2fL};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final long sampleSize;
+        private long additions;
+
+        FrequencySketch(long capacity) {
+            int counters = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, capacity)) * 2 - 1);
+            table = new long[counters / 16 * 4];
+            mask = counters / 16 - 1;
+            sampleSize = 10 * Math.max(64, capacity);
+        }
+
+        void increment(String word) {
+            int hash = spread(word.hashCode());
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int counter = indexOf(hash, row);
+                int index = row * (mask + 1) + (counter >>> 4 & mask);
+                int shift = (counter & 15) << 2;
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String word) {
+            int hash = spread(word.hashCode());
+            int frequency = 15;
+            for (int row = 0; row < 4; row++) {
+                int counter = indexOf(hash, row);
+                int index = row * (mask + 1) + (counter >>> 4 & mask);
+                int shift = (counter & 15) << 2;
+                frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 15));
+            }
+            return frequency;
+        }
+
+        private static int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h + (h >>> 32));
+        }
+
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+
+    public static class Builder {
+
+        private long maximumEntries = 10000;
+        private long maximumBytes;
+        private boolean cacheNegatives = true;
+
+        private Builder() {
+        }
+
+        public Builder maximumEntries(long maximumEntries) {
+            this.maximumEntries = maximumEntries;
+            this.maximumBytes = 0;
+            return this;
+        }
+
+        // bound the approximate heap size of the entries instead of their number
+        public Builder maximumBytes(long maximumBytes) {
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        // also cache words that have no known correction [default true]
+        public Builder cacheNegatives(boolean cacheNegatives) {
+            this.cacheNegatives = cacheNegatives;
+            return this;
+        }
+
+        public CorrectionCache build() {
+            if (maximumBytes > 0) {
+                return new CorrectionCache(maximumBytes, true, cacheNegatives);
+            }
+            if (maximumEntries <= 0) {
+                throw new IllegalStateException("maximumEntries or maximumBytes must be positive");
+            }
+            return new CorrectionCache(maximumEntries, false, cacheNegatives);
+        }
+    }
+}
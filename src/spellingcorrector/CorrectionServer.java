@@ -0,0 +1,363 @@
+package spellingcorrector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spelling correction over HTTP [JDK com.sun.net.httpserver, no dependencies].
+ * <pre>
+ * GET  /correct?word=speling   one word          -> its correction
+ * GET  /correct?word=strase&amp;lang=de                -> its correction in another language [see {@link Languages}]
+ * POST /correct/batch          words, one a line -> their corrections, one a line
+ * POST /correct/text           any text          -> the text with every word corrected [punctuation and case kept]
+ * GET  /metrics                                 -> latency percentiles per endpoint, queue and rejection counts
+ *                                                  [and the corrector's {@link CorrectorMetrics}, if it has any]
+ * </pre>
+ * Bodies are UTF-8 text/plain. Words of all concurrent requests go through one {@link MicroBatcher}; when its queue is
+ * full a request gets 503 with Retry-After instead of waiting. A word with a language is corrected right away by that
+ * language's corrector, without batching; batches and text are corrected in the main corrector's language. Requests run
+ * on virtual threads when the JVM has them [Java 21+], else on a fixed pool whose bounded queue makes the accepting
+ * thread run the request itself when full.
+ * <pre>
+ * java spellingcorrector.CorrectionServer 8080 big.txt
+ * </pre>
+ */
+public class CorrectionServer {
+
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final SpellCorrector corrector;
+    // null if the server has no other languages
+    private final Languages languages;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MicroBatcher batcher;
+    private final LatencyHistogram correctLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram textLatency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+
+    private CorrectionServer(SpellCorrector corrector, Languages languages, int port, int threads, int queueCapacity,
+                             int maxBatchWords, long maxDelayMicros) throws IOException {
+        this.corrector = corrector;
+        this.languages = languages;
+        this.batcher = new MicroBatcher(corrector, queueCapacity, maxBatchWords, maxDelayMicros, TimeUnit.MICROSECONDS);
+        this.executor = newExecutor(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/correct", new Endpoint("GET", correctLatency) {
+            @Override
+            String respond(HttpExchange exchange) throws IOException {
+                String word = queryParameter(exchange, "word");
+                if (word == null || word.isEmpty()) {
+                    throw new BadRequest("missing word parameter");
+                }
+                String language = queryParameter(exchange, "lang");
+                if (language != null) {
+                    SpellCorrector languageCorrector = (languages != null ? languages.corrector(language) : null);
+                    if (languageCorrector == null) {
+                        throw new BadRequest("unknown language " + language);
+                    }
+                    return languageCorrector.correct(word) + "\n";
+                }
+                return correct(Collections.singletonList(word)).get(0) + "\n";
+            }
+        });
+        server.createContext("/correct/batch", new Endpoint("POST", batchLatency) {
+            @Override
+            String respond(HttpExchange exchange) throws IOException {
+                List<String> words = new ArrayList<String>();
+                for (String line : readBody(exchange).split("\r?\n")) {
+                    String word = line.trim();
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+                StringBuilder response = new StringBuilder();
+                for (String correction : correct(words)) {
+                    response.append(correction).append('\n');
+                }
+                return response.toString();
+            }
+        });
+        server.createContext("/correct/text", new Endpoint("POST", textLatency) {
+            @Override
+            String respond(HttpExchange exchange) throws IOException {
+                return correctText(readBody(exchange));
+            }
+        });
+        server.createContext("/metrics", new Endpoint("GET", null) {
+            @Override
+            String respond(HttpExchange exchange) {
+                return metrics();
+            }
+        });
+    }
+
+    public static Builder builder(SpellCorrector corrector) {
+        return new Builder(corrector);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String wordsFile = args.length > 1 ? args[1] : SpellCorrect.WORDS_FILE;
+        CorrectorMetrics metrics = new CorrectorMetrics();
+        SpellCorrector corrector = SpellCorrector.builder().wordsFile(wordsFile)
+                .snapshotFile(args.length > 2 ? args[2] : null).metrics(metrics).build();
+        metrics.register("server");
+        CorrectionServer server = builder(corrector).port(port).build();
+        server.start();
+        System.out.println("listening on port " + server.port());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting, give exchanges in progress up to delaySeconds to finish, then fail what is still queued
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        batcher.close();
+        executor.shutdown();
+    }
+
+    // the bound port [useful with port 0]
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Latency percentiles [microseconds] of each endpoint, words per batch, queue depth and rejected requests, then the
+     * corrector's metrics if it has any
+     */
+    public String metrics() {
+        return "correct: " + correctLatency + "\n"
+                + "batch: " + batchLatency + "\n"
+                + "text: " + textLatency + "\n"
+                + "batchWords: " + batcher.batchWords() + "\n"
+                + "queued: " + batcher.queued() + "\n"
+                + "rejected: " + rejected.sum() + "\n"
+                + (corrector.metrics() != null ? corrector.metrics().toString() : "");
+    }
+
+    private List<String> correct(List<String> words) throws IOException {
+        if (words.isEmpty()) {
+            return words;
+        }
+        try {
+            return batcher.submit(words).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw (RejectedExecutionException) e.getCause();
+            }
+            throw new IOException("correction failed", e.getCause());
+        }
+    }
+
+    // correct every word of text, keeping its capitalization [see TextCorrector.matchCase; words beyond a-z are only
+    // corrected by a unicode corrector]
+    private String correctText(String text) throws IOException {
+        List<String> words = new ArrayList<String>();
+        List<int[]> spans = new ArrayList<int[]>();
+        TextTokenizer tokenizer = new TextTokenizer(text);
+        while (tokenizer.next()) {
+            if (!corrector.isUnicode() && !tokenizer.isAscii()) {
+                continue;
+            }
+            words.add(text.substring(tokenizer.start(), tokenizer.end()));
+            spans.add(new int[]{tokenizer.start(), tokenizer.end()});
+        }
+        List<String> corrections = correct(words);
+
+        StringBuilder corrected = new StringBuilder(text.length() + 16);
+        int from = 0;
+        for (int w = 0; w < words.size(); w++) {
+            int[] span = spans.get(w);
+            corrected.append(text, from, span[0]).append(TextCorrector.matchCase(text, span[0], span[1], corrections.get(w)));
+            from = span[1];
+        }
+        return corrected.append(text, from, text.length()).toString();
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY_BYTES) {
+                throw new BadRequest("body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // virtual thread per request if the JVM has them, else a fixed pool [looked up reflectively: this compiles for Java 8]
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * 16), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    private static class BadRequest extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One endpoint: checks the method, times the exchange and maps failures to status codes
+     */
+    private abstract class Endpoint implements HttpHandler {
+
+        private final String method;
+        private final LatencyHistogram latency;
+
+        Endpoint(String method, LatencyHistogram latency) {
+            this.method = method;
+            this.latency = latency;
+        }
+
+        abstract String respond(HttpExchange exchange) throws IOException;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            try {
+                if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                    send(exchange, 404, "not found\n");
+                } else if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "use " + method + "\n");
+                } else {
+                    send(exchange, 200, respond(exchange));
+                }
+            } catch (BadRequest e) {
+                send(exchange, 400, e.getMessage() + "\n");
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, e.getMessage() + "\n");
+            } catch (IOException | RuntimeException e) {
+                send(exchange, 500, e + "\n");
+            } finally {
+                exchange.close();
+                if (latency != null) {
+                    latency.recordMicrosSince(start);
+                }
+            }
+        }
+
+        private void send(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    public static class Builder {
+
+        private final SpellCorrector corrector;
+        private Languages languages;
+        private int port = 8080;
+        private int threads = 64;
+        private int queueCapacity = 4096;
+        private int maxBatchWords = 256;
+        private long maxDelayMicros = 500;
+
+        private Builder(SpellCorrector corrector) {
+            this.corrector = corrector;
+        }
+
+        // 0 picks a free port [see port()]
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        // request threads when virtual threads are not available [default 64]
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        // requests waiting for a batch before new ones are rejected with 503 [default 4096]
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        // words per correctAll() call, and how long the first request of a batch waits for more [default 256, 500 us]
+        public Builder batching(int maxBatchWords, long maxDelay, TimeUnit unit) {
+            this.maxBatchWords = maxBatchWords;
+            this.maxDelayMicros = unit.toMicros(maxDelay);
+            return this;
+        }
+
+        // correctors for the lang parameter of /correct [default none]
+        public Builder languages(Languages languages) {
+            this.languages = languages;
+            return this;
+        }
+
+        public CorrectionServer build() throws IOException {
+            if (corrector == null) {
+                throw new IllegalStateException("corrector must be set");
+            }
+            if (threads < 1) {
+                throw new IllegalStateException("threads must be positive: " + threads);
+            }
+            return new CorrectionServer(corrector, languages, port, threads, queueCapacity, maxBatchWords, maxDelayMicros);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package spellingcorrector;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where {@link SpellCorrector#correct(String)} and {@link SpellCorrector#correctAll} spend their time: calls by outcome
+ * [the word is known, corrected at edit distance 1, corrected at distance 2 or more, or left as it is], candidates
+ * generated and dictionary probes per call [see {@link SearchCounters}], and a latency histogram per outcome.
+ * <p>
+ * Every counter is striped so concurrent calls rarely touch the same cache line: LongAdders, and latency histograms
+ * with one stripe per processor. A known word is a single probe that takes less time than reading the clock twice, so
+ * only one known-word call in {@link #KNOWN_SAMPLE_RATE} is timed [all are counted]. A batch counts each distinct word
+ * once, as it corrects it once, and does not time its known words. Latencies are recorded in nanoseconds.
+ * <pre>
+ * CorrectorMetrics metrics = new CorrectorMetrics();
+ * SpellCorrector corrector = SpellCorrector.builder().wordsFile("big.txt").metrics(metrics).build();
+ * metrics.register("main");   // jconsole: spellingcorrector:type=CorrectorMetrics,name=main
+ * System.out.print(metrics);
+ * </pre>
+ */
+public final class CorrectorMetrics implements CorrectorMetricsMXBean {
+
+    public static final int KNOWN_SAMPLE_RATE = 64;
+
+    public enum Outcome {
+        KNOWN, EDIT1, EDIT2, UNCORRECTED
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final LongAdder[] calls = new LongAdder[OUTCOMES.length];
+    private final LongAdder[] candidates = new LongAdder[OUTCOMES.length];
+    private final LongAdder[] probes = new LongAdder[OUTCOMES.length];
+    private final LatencyHistogram[] latency = new LatencyHistogram[OUTCOMES.length];
+    private volatile ObjectName name;
+
+    public CorrectorMetrics() {
+        int stripes = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            calls[i] = new LongAdder();
+            candidates[i] = new LongAdder();
+            probes[i] = new LongAdder();
+            latency[i] = new LatencyHistogram(stripes);
+        }
+    }
+
+    /**
+     * Register as an MXBean named spellingcorrector:type=CorrectorMetrics,name=name on the platform MBean server
+     */
+    public synchronized ObjectName register(String name) {
+        if (this.name != null) {
+            throw new IllegalStateException("already registered as " + this.name);
+        }
+        try {
+            ObjectName objectName = new ObjectName("spellingcorrector:type=CorrectorMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.name = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + name, e);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister " + name, e);
+        } finally {
+            name = null;
+        }
+    }
+
+    public long calls(Outcome outcome) {
+        return calls[outcome.ordinal()].sum();
+    }
+
+    // latency of the timed calls with outcome, in nanoseconds
+    public LatencyHistogram latency(Outcome outcome) {
+        return latency[outcome.ordinal()];
+    }
+
+    // whether to time the next known-word call
+    boolean sampleKnown() {
+        return (ThreadLocalRandom.current().nextInt() & (KNOWN_SAMPLE_RATE - 1)) == 0;
+    }
+
+    // a known word whose call was timed from startNanos
+    void recordKnownSince(long startNanos) {
+        latency[Outcome.KNOWN.ordinal()].record(System.nanoTime() - startNanos);
+        calls[Outcome.KNOWN.ordinal()].increment();
+    }
+
+    // known words that were not timed
+    void recordKnown(int count) {
+        calls[Outcome.KNOWN.ordinal()].add(count);
+    }
+
+    /**
+     * An unknown lowercased word and its correction, started at startNanos, with the candidates and probes it took
+     */
+    void record(String word, String correction, long startNanos, long candidateCount, long probeCount) {
+        long nanos = System.nanoTime() - startNanos;
+        int outcome = (correction.equals(word) ? Outcome.UNCORRECTED
+                : withinOneEdit(word, correction) ? Outcome.EDIT1 : Outcome.EDIT2).ordinal();
+        calls[outcome].increment();
+        candidates[outcome].add(candidateCount);
+        probes[outcome].add(probeCount);
+        latency[outcome].record(nanos);
+    }
+
+    // one deletion, insertion, alteration or adjacent transposition turns a into b
+    static boolean withinOneEdit(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int n = a.length();
+        int m = b.length();
+        if (n - m > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < m && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (n != m) {
+            // the longer one has an extra letter at i
+            return a.regionMatches(i + 1, b, i, m - i);
+        }
+        if (i == n || a.regionMatches(i + 1, b, i + 1, n - i - 1)) {
+            return true;
+        }
+        return i + 1 < n && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.regionMatches(i + 2, b, i + 2, n - i - 2);
+    }
+
+    @Override
+    public long getKnownCount() {
+        return calls(Outcome.KNOWN);
+    }
+
+    @Override
+    public long getEdit1Count() {
+        return calls(Outcome.EDIT1);
+    }
+
+    @Override
+    public long getEdit2Count() {
+        return calls(Outcome.EDIT2);
+    }
+
+    @Override
+    public long getUncorrectedCount() {
+        return calls(Outcome.UNCORRECTED);
+    }
+
+    @Override
+    public double getCandidatesPerCall() {
+        return perUnknownCall(candidates);
+    }
+
+    @Override
+    public double getProbesPerCall() {
+        return perUnknownCall(probes);
+    }
+
+    @Override
+    public Map<String, Long> getP50Nanos() {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getP999Nanos() {
+        return percentiles(0.999);
+    }
+
+    @Override
+    public String getDump() {
+        return toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            calls[i].reset();
+            candidates[i].reset();
+            probes[i].reset();
+            latency[i].reset();
+        }
+    }
+
+    /**
+     * One line per outcome: calls, candidates and probes per call, latency percentiles in nanoseconds
+     */
+    @Override
+    public String toString() {
+        StringBuilder dump = new StringBuilder();
+        for (Outcome outcome : OUTCOMES) {
+            int i = outcome.ordinal();
+            long n = calls[i].sum();
+            LatencyHistogram histogram = latency[i];
+            dump.append(outcome.name().toLowerCase(Locale.ROOT)).append(": {'calls': ").append(n)
+                    .append(", 'candidates/call': ").append(String.format("%.1f", n == 0 ? 0.0 : (double) candidates[i].sum() / n))
+                    .append(", 'probes/call': ").append(String.format("%.1f", n == 0 ? 0.0 : (double) probes[i].sum() / n))
+                    .append(", 'timed': ").append(histogram.count())
+                    .append(", 'p50 ns': ").append(histogram.percentile(0.5))
+                    .append(", 'p99 ns': ").append(histogram.percentile(0.99))
+                    .append(", 'p999 ns': ").append(histogram.percentile(0.999)).append("}\n");
+        }
+        return dump.toString();
+    }
+
+    private double perUnknownCall(LongAdder[] counters) {
+        long total = 0;
+        long n = 0;
+        for (Outcome outcome : OUTCOMES) {
+            if (outcome != Outcome.KNOWN) {
+                total += counters[outcome.ordinal()].sum();
+                n += calls[outcome.ordinal()].sum();
+            }
+        }
+        return n == 0 ? 0 : (double) total / n;
+    }
+
+    private Map<String, Long> percentiles(double fraction) {
+        Map<String, Long> percentiles = new LinkedHashMap<String, Long>();
+        for (Outcome outcome : OUTCOMES) {
+            percentiles.put(outcome.name().toLowerCase(Locale.ROOT), latency[outcome.ordinal()].percentile(fraction));
+        }
+        return percentiles;
+    }
+}
@@ -0,0 +1,34 @@
+package spellingcorrector;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link CorrectorMetrics} [see {@link CorrectorMetrics#register(String)}]. Latency maps are keyed by
+ * outcome: known, edit1, edit2, uncorrected.
+ */
+public interface CorrectorMetricsMXBean {
+
+    long getKnownCount();
+
+    long getEdit1Count();
+
+    long getEdit2Count();
+
+    long getUncorrectedCount();
+
+    // per call on an unknown word
+    double getCandidatesPerCall();
+
+    double getProbesPerCall();
+
+    Map<String, Long> getP50Nanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getP999Nanos();
+
+    // the text dump of toString()
+    String getDump();
+
+    void reset();
+}
@@ -0,0 +1,379 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Dictionary as a minimized trie [DAWG] with the frequency of each word on its terminal node, searched by walking it with
+ * one row of the edit distance table per trie level.
+ * <p>
+ * Instead of generating blind edits and probing for each, a branch is only followed while some prefix of the input word
+ * is still within maxDistance of the branch's prefix, and while the branch can still hold a better word than the best
+ * one found [closer, or as close and more frequent - every node knows the highest frequency below it]. Identical
+ * subtrees (same letters, same frequencies) are stored once.
+ * <p>
+ * The distance is unrestricted Damerau-Levenshtein [Lowrance-Wagner], the same distance {@link EditSearch} and
+ * {@link SymmetricDeleteIndex} search, so with maxDistance 2 the ranking is the one of {@link WordModel#correct(String)}.
+ * Nodes are stored in flat arrays [edges of node n are firstEdge[n] .. firstEdge[n + 1] - 1, sorted by letter].
+ */
+public class Dawg {
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final ThreadLocal<Search> SEARCHES = new ThreadLocal<Search>() {
+        @Override
+        protected Search initialValue() {
+            return new Search();
+        }
+    };
+
+    private final int root;
+    private final int[] firstEdge;
+    private final char[] edgeLetter;
+    private final int[] edgeTarget;
+    private final int[] frequency;
+    private final int[] subtreeMax;
+    private final int maxWordLength;
+    private final int maxDistance;
+
+    private Dawg(int root, int[] firstEdge, char[] edgeLetter, int[] edgeTarget, int[] frequency, int[] subtreeMax,
+                 int maxWordLength, int maxDistance) {
+        this.root = root;
+        this.firstEdge = firstEdge;
+        this.edgeLetter = edgeLetter;
+        this.edgeTarget = edgeTarget;
+        this.frequency = frequency;
+        this.subtreeMax = subtreeMax;
+        this.maxWordLength = maxWordLength;
+        this.maxDistance = maxDistance;
+    }
+
+    public Dawg(FrequencyTable nWords, int maxDistance) {
+        if (maxDistance < 1) {
+            throw new IllegalArgumentException("maxDistance must be at least 1: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+
+        // plain trie first
+        String[] words = new String[nWords.size()];
+        for (int id = 0; id < words.length; id++) {
+            words[id] = nWords.word(id);
+        }
+        Arrays.sort(words);
+        TrieNode trie = new TrieNode();
+        int longest = 0;
+        for (String word : words) {
+            TrieNode node = trie;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.child(word.charAt(i));
+            }
+            node.frequency = nWords.get(word);
+            longest = Math.max(longest, word.length());
+        }
+        maxWordLength = longest;
+
+        // then merge identical subtrees bottom-up, numbering the distinct nodes in post-order
+        Minimizer minimizer = new Minimizer();
+        root = minimizer.add(trie);
+        int nodes = minimizer.frequencies.size();
+        firstEdge = new int[nodes + 1];
+        edgeLetter = new char[minimizer.edgeLetters.length()];
+        edgeTarget = new int[edgeLetter.length];
+        frequency = new int[nodes];
+        subtreeMax = new int[nodes];
+        minimizer.edgeLetters.getChars(0, edgeLetter.length, edgeLetter, 0);
+        for (int edge = 0; edge < edgeTarget.length; edge++) {
+            edgeTarget[edge] = minimizer.edgeTargets.get(edge);
+        }
+        for (int node = 0; node < nodes; node++) {
+            firstEdge[node + 1] = minimizer.edgeEnds.get(node);
+            frequency[node] = minimizer.frequencies.get(node);
+            int max = frequency[node];
+            for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+                max = Math.max(max, subtreeMax[edgeTarget[edge]]);
+            }
+            subtreeMax[node] = max;
+        }
+    }
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    public int nodeCount() {
+        return frequency.length;
+    }
+
+    /**
+     * Bytes held by the node and edge arrays
+     */
+    public long memoryBytes() {
+        return FrequencyTable.arrayBytes(firstEdge.length, 4) + FrequencyTable.arrayBytes(edgeLetter.length, 2)
+                + FrequencyTable.arrayBytes(edgeTarget.length, 4) + FrequencyTable.arrayBytes(frequency.length, 4)
+                + FrequencyTable.arrayBytes(subtreeMax.length, 4);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(root);
+        out.writeInt(maxWordLength);
+        out.writeInt(maxDistance);
+        ModelSnapshot.writeInts(out, firstEdge);
+        ModelSnapshot.writeChars(out, edgeLetter);
+        ModelSnapshot.writeInts(out, edgeTarget);
+        ModelSnapshot.writeInts(out, frequency);
+        ModelSnapshot.writeInts(out, subtreeMax);
+    }
+
+    static Dawg read(ByteBuffer in) throws IOException {
+        int root = in.getInt();
+        int maxWordLength = in.getInt();
+        int maxDistance = in.getInt();
+        int[] firstEdge = ModelSnapshot.readInts(in);
+        char[] edgeLetter = ModelSnapshot.readChars(in);
+        int[] edgeTarget = ModelSnapshot.readInts(in);
+        int[] frequency = ModelSnapshot.readInts(in);
+        int[] subtreeMax = ModelSnapshot.readInts(in);
+        if (firstEdge.length != frequency.length + 1 || subtreeMax.length != frequency.length
+                || edgeTarget.length != edgeLetter.length || root < 0 || root >= frequency.length) {
+            throw new IOException("corrupt dawg");
+        }
+        return new Dawg(root, firstEdge, edgeLetter, edgeTarget, frequency, subtreeMax, maxWordLength, maxDistance);
+    }
+
+    /**
+     * Closest known word within maxDistance of word [most frequent among equally close ones], null if there is none
+     */
+    public String bestCandidate(String word) {
+        Search search = SEARCHES.get();
+        search.start(word, maxWordLength, maxDistance, null, null);
+        visitChildren(search, root, 0);
+        return search.bestDistance <= maxDistance ? new String(search.best, 0, search.bestLength) : null;
+    }
+
+    /**
+     * Offer every known word within maxDistance of word [any distance, not just this trie's] to top, as its id in
+     * nWords [the table this trie was built from] ranked by {@link TopK#rank}; branches that cannot beat the worst word
+     * kept by top are not walked
+     */
+    void collect(FrequencyTable nWords, String word, int maxDistance, TopK top) {
+        Search search = SEARCHES.get();
+        search.start(word, maxWordLength, maxDistance, nWords, top);
+        try {
+            visitChildren(search, root, 0);
+        } finally {
+            search.nWords = null;
+            search.top = null;
+        }
+    }
+
+    // extend the path of length depth ending at node by each of its edges
+    private void visitChildren(Search search, int node, int depth) {
+        char[] input = search.input;
+        int m = search.inputLength;
+        int i = depth + 1;
+        int[][] rows = search.rows;
+        int[] previous = rows[i];
+        int[] row = rows[i + 1];
+
+        for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+            char letter = edgeLetter[edge];
+            int child = edgeTarget[edge];
+
+            // row i of the distance table: dictionary prefix of length i against every prefix of the input
+            row[0] = INFINITY;
+            row[1] = i;
+            int rowMin = i;
+            int lastMatchColumn = 0;
+            for (int j = 1; j <= m; j++) {
+                char inputLetter = input[j - 1];
+                int i1 = search.lastRow(inputLetter, i);
+                int j1 = lastMatchColumn;
+                int cost = 1;
+                if (inputLetter == letter) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                int distance = Math.min(Math.min(previous[j] + cost, row[j] + 1),
+                        Math.min(previous[j + 1] + 1, rows[i1][j1] + (i - i1 - 1) + 1 + (j - j1 - 1)));
+                row[j + 1] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+
+            search.path[depth] = letter;
+            search.hash[i] = search.hash[depth] * 31 + letter;
+            int distance = row[m + 1];
+            search.counters.candidates++;
+            if (frequency[child] > 0) {
+                search.counters.probes++;
+            }
+            if (frequency[child] > 0 && distance <= search.maxDistance && search.isBetter(distance, frequency[child])) {
+                search.setBest(distance, frequency[child], i);
+            }
+
+            // descendants are at least rowMin away from the input
+            if (rowMin <= search.maxDistance && search.mayHoldBetter(rowMin, subtreeMax[child]) && firstEdge[child] < firstEdge[child + 1]) {
+                int previousLastRow = search.setLastRow(letter, i);
+                visitChildren(search, child, i);
+                search.setLastRow(letter, previousLastRow);
+            }
+        }
+    }
+
+    /**
+     * Per-thread search state: distance table rows along the current trie path and the best word so far [or the best
+     * words, kept by a {@link TopK}]
+     */
+    private static final class Search {
+
+        final SearchCounters counters = SearchCounters.get();
+        char[] input = new char[32];
+        int inputLength;
+        int maxDistance;
+        FrequencyTable nWords;
+        TopK top;
+        int[][] rows = new int[0][];
+        char[] path = new char[32];
+        // String.hashCode() of path[0, i)
+        int[] hash = new int[33];
+        int[] lastRow = new int[26];
+        char[] best = new char[32];
+        int bestLength;
+        int bestDistance;
+        int bestFrequency;
+
+        void start(String word, int maxWordLength, int maxDistance, FrequencyTable nWords, TopK top) {
+            this.maxDistance = maxDistance;
+            this.nWords = nWords;
+            this.top = top;
+            inputLength = word.length();
+            if (input.length < inputLength) {
+                input = new char[inputLength * 2];
+            }
+            word.getChars(0, inputLength, input, 0);
+            if (rows.length < maxWordLength + 2 || rows[0].length < inputLength + 2) {
+                rows = new int[maxWordLength + 2][Math.max(inputLength + 2, rows.length > 0 ? rows[0].length : 0)];
+                path = new char[maxWordLength];
+                hash = new int[maxWordLength + 1];
+                best = new char[maxWordLength];
+            }
+            // row 0 is the border, row 1 is the empty dictionary prefix
+            Arrays.fill(rows[0], INFINITY);
+            rows[1][0] = INFINITY;
+            for (int j = 0; j <= inputLength; j++) {
+                rows[1][j + 1] = j;
+            }
+            Arrays.fill(lastRow, 0);
+            bestDistance = INFINITY;
+            bestFrequency = 0;
+        }
+
+        // last row above row i on the current path whose dictionary letter is letter [a-z from the index, others by scanning the path]
+        int lastRow(char letter, int i) {
+            if (letter >= 'a' && letter <= 'z') {
+                return lastRow[letter - 'a'];
+            }
+            for (int row = i - 1; row > 0; row--) {
+                if (path[row - 1] == letter) {
+                    return row;
+                }
+            }
+            return 0;
+        }
+
+        int setLastRow(char letter, int row) {
+            if (letter < 'a' || letter > 'z') {
+                return 0;
+            }
+            int previous = lastRow[letter - 'a'];
+            lastRow[letter - 'a'] = row;
+            return previous;
+        }
+
+        boolean isBetter(int distance, int frequency) {
+            if (top != null) {
+                return top.accepts(TopK.rank(distance, frequency));
+            }
+            return distance < bestDistance || (distance == bestDistance && frequency > bestFrequency);
+        }
+
+        boolean mayHoldBetter(int minDistance, int maxFrequency) {
+            if (top != null) {
+                return top.accepts(TopK.rank(minDistance, maxFrequency));
+            }
+            return minDistance < bestDistance || (minDistance == bestDistance && maxFrequency > bestFrequency);
+        }
+
+        void setBest(int distance, int frequency, int length) {
+            if (top != null) {
+                top.offer(TopK.rank(distance, frequency), nWords.id(path, 0, length, hash[length]), distance);
+                return;
+            }
+            bestDistance = distance;
+            bestFrequency = frequency;
+            bestLength = length;
+            System.arraycopy(path, 0, best, 0, length);
+        }
+    }
+
+    /**
+     * Mutable trie node used while building
+     */
+    private static final class TrieNode {
+
+        char[] letters = new char[0];
+        TrieNode[] children = new TrieNode[0];
+        int frequency;
+
+        // words are inserted in sorted order, so a new letter always goes last
+        TrieNode child(char letter) {
+            int last = letters.length - 1;
+            if (last >= 0 && letters[last] == letter) {
+                return children[last];
+            }
+            letters = Arrays.copyOf(letters, last + 2);
+            children = Arrays.copyOf(children, last + 2);
+            letters[last + 1] = letter;
+            children[last + 1] = new TrieNode();
+            return children[last + 1];
+        }
+    }
+
+    /**
+     * Assigns one id to every distinct subtree [same frequency, same letters leading to the same subtrees]
+     */
+    private static final class Minimizer {
+
+        final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        final ArrayList<Integer> frequencies = new ArrayList<Integer>();
+        final ArrayList<Integer> edgeEnds = new ArrayList<Integer>();
+        final StringBuilder edgeLetters = new StringBuilder();
+        final ArrayList<Integer> edgeTargets = new ArrayList<Integer>();
+
+        int add(TrieNode node) {
+            int[] childIds = new int[node.children.length];
+            StringBuilder signature = new StringBuilder().append(node.frequency);
+            for (int i = 0; i < childIds.length; i++) {
+                childIds[i] = add(node.children[i]);
+                signature.append(',').append(node.letters[i]).append(childIds[i]);
+            }
+
+            String key = signature.toString();
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = frequencies.size();
+                ids.put(key, id);
+                frequencies.add(node.frequency);
+                for (int i = 0; i < childIds.length; i++) {
+                    edgeLetters.append(node.letters[i]);
+                    edgeTargets.add(childIds[i]);
+                }
+                edgeEnds.add(edgeTargets.size());
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package spellingcorrector;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free edit1/edit2 search over a {@link FrequencyTable}.
+ * <p>
+ * Instead of building a String and a HashSet entry for every edited word [see {@link WordModel#addEdit1Candidates}],
+ * each edit is applied in place to a reusable scratch buffer and probed with a hash derived in O(1) from prefix/suffix
+ * hashes of the unedited word. That hash is first checked against the table's {@link BloomFilter}, so most edits that
+ * are not words never touch the table. Only the best candidate found is turned into a String.
+ * <p>
+ * Edits that just reproduce the word being edited (changing a letter to itself, swapping two equal letters) are skipped,
+ * as are the duplicate deletions/insertions inside runs of one letter; this changes nothing about which known words are
+ * found. Alterations and insertions use the letters of the dictionary's {@link Alphabet}: on the last edit only the
+ * letters that some word has between the two neighbours of the edit, as no other letter can make a known word; on the
+ * edit before it only the letters that some word has next to one of the two neighbours [in either order], as the last
+ * edit can separate the letter from one neighbour at most - unless it deletes, alters or moves the letter itself, which
+ * reaches a word that is at most one edit away anyway. Candidates are scored as they are generated, and edits that
+ * cannot produce a word more frequent than the best so far [see {@link FrequencyBounds}] are not generated at all, so
+ * the result is the same as a full scan.
+ * <p>
+ * With a previous word, candidates are scored by bigramWeight x count(previous, candidate) + unigramWeight x frequency
+ * instead of frequency alone; a pair count never exceeds the candidate's frequency, so frequency bounds scaled by the sum
+ * of the weights still bound the score and the pruning stays exact.
+ * <p>
+ * {@link #collect} finds all known words within edit distance 2 instead of the best one; only edits under prefixes
+ * that start no known word are skipped. Collected into a {@link TopK} instead, edits that cannot beat its worst
+ * candidate [by distance, then frequency] are skipped as well.
+ * One instance is kept per thread [see {@link #get()}].
+ */
+final class EditSearch {
+
+    private static final ThreadLocal<EditSearch> SEARCHES = new ThreadLocal<EditSearch>() {
+        @Override
+        protected EditSearch initialValue() {
+            return new EditSearch();
+        }
+    };
+
+    private final Level[] levels = {new Level(), new Level()};
+    private FrequencyTable nWords;
+    private FrequencyBounds bounds;
+    private Alphabet alphabet;
+    private BigramTable bigrams;
+    private int previousId;
+    private double bigramWeight;
+    private double unigramWeight;
+    // score bound per unit of frequency bound
+    private double boundScale;
+    private int maxDepth;
+    private char[] best = new char[32];
+    private int bestLength;
+    private double bestScore;
+    private boolean collecting;
+    private int collectDepth;
+    private int[] collected = new int[64];
+    private int collectedCount;
+    private TopK top;
+    private final SearchCounters counters = SearchCounters.get();
+
+    static EditSearch get() {
+        return SEARCHES.get();
+    }
+
+    /**
+     * Most frequent known word at edit distance 1 of word, else at edit distance 2, else null
+     */
+    String bestCandidate(FrequencyTable nWords, FrequencyBounds bounds, Alphabet alphabet, String word) {
+        return bestCandidate(nWords, bounds, alphabet, null, -1, 0, 1, word);
+    }
+
+    /**
+     * Best scoring known word at edit distance 1 of word, else at edit distance 2, else null; scored by pair count with
+     * the word previousId [if bigrams is not null and previousId is not -1, capped at the candidate's frequency] and frequency
+     */
+    String bestCandidate(FrequencyTable nWords, FrequencyBounds bounds, Alphabet alphabet, BigramTable bigrams, int previousId,
+                         double bigramWeight, double unigramWeight, String word) {
+        this.nWords = nWords;
+        this.bounds = bounds;
+        this.alphabet = alphabet;
+        this.bigrams = (previousId >= 0 && bigramWeight > 0 ? bigrams : null);
+        this.previousId = previousId;
+        this.bigramWeight = bigramWeight;
+        this.unigramWeight = unigramWeight;
+        this.boundScale = (this.bigrams != null ? bigramWeight + unigramWeight : unigramWeight);
+        levels[0].load(word);
+        bestScore = 0;
+
+        for (maxDepth = 1; maxDepth <= levels.length; maxDepth++) {
+            visitEdits(0);
+            if (bestScore > 0) {
+                release();
+                return new String(best, 0, bestLength);
+            }
+        }
+        release();
+        return null;
+    }
+
+    /**
+     * Known words at edit distance 1 .. maxDistance [at most 2] of word other than word itself, into {@link #collected()}
+     * as id * 4 + distance, sorted, each id once with its smallest distance. Returns how many.
+     */
+    int collect(FrequencyTable nWords, FrequencyBounds bounds, Alphabet alphabet, String word, int maxDistance) {
+        this.nWords = nWords;
+        this.bounds = bounds;
+        this.alphabet = alphabet;
+        this.bigrams = null;
+        // prune only where the bound is 0 [no known word]
+        this.boundScale = Double.MAX_VALUE;
+        bestScore = Double.MIN_VALUE;
+        collecting = true;
+        collectedCount = 0;
+        levels[0].load(word);
+        int wordId = nWords.id(word);
+
+        try {
+            for (maxDepth = 1; maxDepth <= Math.min(maxDistance, levels.length); maxDepth++) {
+                collectDepth = maxDepth;
+                visitEdits(0);
+            }
+        } finally {
+            collecting = false;
+            release();
+        }
+
+        Arrays.sort(collected, 0, collectedCount);
+        int count = 0;
+        for (int i = 0; i < collectedCount; i++) {
+            int id = collected[i] >> 2;
+            if (id != wordId && (count == 0 || (collected[count - 1] >> 2) != id)) {
+                collected[count++] = collected[i];
+            }
+        }
+        collectedCount = count;
+        return count;
+    }
+
+    // result of the last collect()
+    int[] collected() {
+        return collected;
+    }
+
+    /**
+     * Offer the known words at edit distance 1 .. maxDistance [at most 2] of word to top, ranked by {@link TopK#rank};
+     * word itself can come up at distance 2 [edited and edited back], so offer it to top first if it is known
+     */
+    void collect(FrequencyTable nWords, FrequencyBounds bounds, Alphabet alphabet, String word, int maxDistance, TopK top) {
+        this.nWords = nWords;
+        this.bounds = bounds;
+        this.alphabet = alphabet;
+        this.bigrams = null;
+        this.top = top;
+        collecting = true;
+        levels[0].load(word);
+
+        try {
+            for (maxDepth = 1; maxDepth <= Math.min(maxDistance, levels.length); maxDepth++) {
+                collectDepth = maxDepth;
+                visitEdits(0);
+            }
+        } finally {
+            collecting = false;
+            this.top = null;
+            release();
+        }
+    }
+
+    private void release() {
+        nWords = null;
+        bounds = null;
+        alphabet = null;
+        bigrams = null;
+    }
+
+    // no word with frequency at most frequencyBound can beat the best so far
+    private boolean cannotBeat(int frequencyBound) {
+        if (top != null) {
+            return frequencyBound == 0 || !top.accepts(TopK.rank(collectDepth, frequencyBound));
+        }
+        return bestScore >= frequencyBound * boundScale;
+    }
+
+    // dictionary probes made by this thread so far
+    long probes() {
+        return counters.probes;
+    }
+
+    // apply every edit1 to levels[depth]; probe the result at the last depth, otherwise edit it further
+    private void visitEdits(int depth) {
+        Level level = levels[depth];
+        char[] word = level.word;
+        char[] edit = level.edit;
+        int length = level.length;
+        int hash = level.prefix[length];
+        int[] pow = level.pow;
+
+        // best frequency still reachable by edits at position >= i [they keep the prefix word[0, i)]
+        int[] bound = level.bound;
+        boolean last = (depth + 1 == maxDepth);
+        if (last) {
+            bound[0] = bounds.max(length - 1, length + 1);
+            if (cannotBeat(bound[0])) {
+                return;
+            }
+            for (int i = 1; i <= length; i++) {
+                bound[i] = bound[i - 1] > 0 ? Math.min(bound[i - 1], bounds.max(word, i, level.prefix[i])) : 0;
+            }
+        } else {
+            Arrays.fill(bound, 0, length + 1, Integer.MAX_VALUE);
+        }
+
+        // deletion (remove one letter): edit holds word without letter i
+        if (length > 0) {
+            System.arraycopy(word, 1, edit, 0, length - 1);
+        }
+        for (int i = 0; i < length; i++) {
+            if (cannotBeat(bound[i])) {
+                break;
+            }
+            if (i == 0 || word[i] != word[i - 1]) {
+                visit(depth, edit, length - 1, level.prefix[i] * pow[length - 1 - i] + level.suffix[i + 1]);
+            }
+            if (i < length - 1) {
+                edit[i] = word[i];
+            }
+        }
+
+        // transposition (swap adjacent letters)
+        System.arraycopy(word, 0, edit, 0, length);
+        for (int i = 0; i < length - 1; i++) {
+            if (cannotBeat(bound[i])) {
+                break;
+            }
+            char a = word[i];
+            char b = word[i + 1];
+            if (a != b) {
+                edit[i] = b;
+                edit[i + 1] = a;
+                visit(depth, edit, length, hash + (b - a) * pow[length - 1 - i] + (a - b) * pow[length - 2 - i]);
+                edit[i] = a;
+                edit[i + 1] = b;
+            }
+        }
+
+        // alteration (change one letter to another)
+        for (int i = 0; i < length; i++) {
+            if (cannotBeat(bound[i])) {
+                break;
+            }
+            char oldChar = word[i];
+            for (char ch : letters(last, word, length, i - 1, i + 1)) {
+                if (ch != oldChar) {
+                    edit[i] = ch;
+                    visit(depth, edit, length, hash + (ch - oldChar) * pow[length - 1 - i]);
+                }
+            }
+            edit[i] = oldChar;
+        }
+
+        // insertion (add a letter): edit holds word with a gap at i
+        System.arraycopy(word, 0, edit, 1, length);
+        for (int i = 0; i <= length; i++) {
+            if (cannotBeat(bound[i])) {
+                break;
+            }
+            int head = level.prefix[i] * pow[length - i + 1];
+            for (char ch : letters(last, word, length, i - 1, i)) {
+                // inserting ch before an equal letter is the same as inserting it after
+                if (i == length || word[i] != ch) {
+                    edit[i] = ch;
+                    visit(depth, edit, length + 1, head + ch * pow[length - i] + level.suffix[i]);
+                }
+            }
+            if (i < length) {
+                edit[i] = word[i];
+            }
+        }
+    }
+
+    // letters worth putting between word[before] and word[after] [either may be the start or end of the word]: those that
+    // can make a known word right away on the last edit, else after one more edit
+    private char[] letters(boolean last, char[] word, int length, int before, int after) {
+        int a = (before < 0 ? Alphabet.BOUNDARY : alphabet.number(word[before]));
+        int b = (after >= length ? Alphabet.BOUNDARY : alphabet.number(word[after]));
+        return last ? alphabet.between(a, b) : alphabet.near(a, b);
+    }
+
+    private void visit(int depth, char[] edit, int length, int hash) {
+        counters.candidates++;
+        if (depth + 1 < maxDepth) {
+            // nothing within edit distance 1 of this edit can beat the best so far
+            if (cannotBeat(bounds.max(length - 1, length + 1))) {
+                return;
+            }
+            levels[depth + 1].load(edit, length);
+            visitEdits(depth + 1);
+            return;
+        }
+
+        counters.probes++;
+        // most edits are not words: the table's filter rules them out from the hash alone
+        if (!nWords.mightContain(hash)) {
+            counters.filtered++;
+            return;
+        }
+        if (collecting) {
+            int id = nWords.id(edit, 0, length, hash);
+            if (id < 0) {
+                counters.falsePositives++;
+            } else if (top != null) {
+                top.offer(TopK.rank(collectDepth, nWords.frequency(id)), id, collectDepth);
+            } else {
+                if (collectedCount == collected.length) {
+                    collected = Arrays.copyOf(collected, collectedCount * 2);
+                }
+                collected[collectedCount++] = id << 2 | collectDepth;
+            }
+            return;
+        }
+        int id = nWords.id(edit, 0, length, hash);
+        if (id < 0) {
+            counters.falsePositives++;
+            return;
+        }
+        int frequency = nWords.frequency(id);
+        double score = (bigrams == null ? unigramWeight * frequency
+                : bigramWeight * Math.min(bigrams.get(previousId, id), frequency) + unigramWeight * frequency);
+        if (score > bestScore) {
+            bestScore = score;
+            if (best.length < length) {
+                best = new char[length * 2];
+            }
+            System.arraycopy(edit, 0, best, 0, length);
+            bestLength = length;
+        }
+    }
+
+    /**
+     * A word being edited, with the hashes of all its prefixes and suffixes [String.hashCode() polynomial]
+     */
+    private static final class Level {
+
+        char[] word = new char[32];
+        char[] edit = new char[33];
+        int[] prefix = new int[33];
+        int[] suffix = new int[33];
+        int[] pow = new int[34];
+        int[] bound = new int[33];
+        int length;
+
+        void load(String source) {
+            ensureCapacity(source.length());
+            source.getChars(0, source.length(), word, 0);
+            hash(source.length());
+        }
+
+        void load(char[] source, int sourceLength) {
+            ensureCapacity(sourceLength);
+            System.arraycopy(source, 0, word, 0, sourceLength);
+            hash(sourceLength);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (word.length < capacity) {
+                int grown = Math.max(capacity, word.length * 2);
+                word = new char[grown];
+                edit = new char[grown + 1];
+                prefix = new int[grown + 1];
+                suffix = new int[grown + 1];
+                pow = new int[grown + 2];
+                bound = new int[grown + 1];
+            }
+        }
+
+        private void hash(int length) {
+            this.length = length;
+            pow[0] = 1;
+            for (int i = 1; i <= length + 1; i++) {
+                pow[i] = pow[i - 1] * 31;
+            }
+            prefix[0] = 0;
+            for (int i = 0; i < length; i++) {
+                prefix[i + 1] = prefix[i] * 31 + word[i];
+            }
+            suffix[length] = 0;
+            for (int i = length - 1; i >= 0; i--) {
+                suffix[i] = word[i] * pow[length - 1 - i] + suffix[i + 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package spellingcorrector;
+
+/**
+ * Candidate search strategy used by {@link WordModel#correct(String)}
+ */
+public enum Engine {
+
+    /**
+     * Norvig's original search: probe all edit1 strings, then edit1 of every edit1 string [see {@link EditSearch}]
+     */
+    EDITS,
+
+    /**
+     * Look up precomputed delete-only variants of the dictionary [see {@link SymmetricDeleteIndex}]
+     */
+    SYMMETRIC_DELETE,
+
+    /**
+     * Walk a minimized trie of the dictionary with a bounded edit distance table [see {@link Dawg}];
+     * the only engine that supports a max distance other than 2
+     */
+    TRIE
+}
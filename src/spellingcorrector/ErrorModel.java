@@ -0,0 +1,302 @@
+package spellingcorrector;
+
+import java.util.Map;
+
+/**
+ * P(w|c) [error model] with per-operation and per-character costs, for ranking candidates by P(c) x P(w|c).
+ * <p>
+ * A cost is -ln P of one typing error, looked up in flat float tables indexed by letter [a-z, and 26 for anything else or
+ * the start of the word; letters sharing index 26 still differ]: substitution[intended][typed],
+ * deletion[previous][omitted], insertion[previous][inserted] and transposition[first][second] [previous is the intended
+ * letter before the error]. The cost of typing w for c is the cheapest sequence of such errors [weighted optimal string
+ * alignment distance: restricted Damerau-Levenshtein].
+ * <p>
+ * {@link #keyboard()} sets costs from the QWERTY layout and common error types; {@link #train} adjusts them from
+ * misspelling pairs [Kernighan, Church and Gale, "A Spelling Correction Program Based on a Noisy Channel Model"].
+ */
+public final class ErrorModel {
+
+    static final int ALPHABET = 27;
+    private static final int OTHER = 26;
+
+    // keyboard() costs in nats: an edit2 candidate needs ~e^5 x the frequency of an edit1 candidate to win
+    private static final float SUBSTITUTE_ADJACENT = 4.0f;
+    private static final float SUBSTITUTE_VOWEL = 4.0f;
+    private static final float SUBSTITUTE = 6.5f;
+    private static final float DELETE_DOUBLE = 3.5f;
+    private static final float DELETE = 6.0f;
+    private static final float INSERT_DOUBLE = 4.0f;
+    private static final float INSERT_ADJACENT = 5.0f;
+    private static final float INSERT = 6.5f;
+    private static final float TRANSPOSE = 4.5f;
+    // lowest trained cost
+    private static final float MIN_COST = 0.5f;
+
+    private static final String[] KEYBOARD_ROWS = {"qwertyuiop", "asdfghjkl", "zxcvbnm"};
+    private static final double[] KEYBOARD_ROW_OFFSETS = {0, 0.25, 0.75};
+
+    private static final ThreadLocal<double[][]> ROWS = new ThreadLocal<double[][]>() {
+        @Override
+        protected double[][] initialValue() {
+            return new double[3][33];
+        }
+    };
+
+    private final float[] substitution;
+    private final float[] deletion;
+    private final float[] insertion;
+    private final float[] transposition;
+
+    private ErrorModel(float[] substitution, float[] deletion, float[] insertion, float[] transposition) {
+        this.substitution = substitution;
+        this.deletion = deletion;
+        this.insertion = insertion;
+        this.transposition = transposition;
+    }
+
+    /**
+     * Costs from the keyboard: substituting a neighbouring key or a vowel for a vowel, dropping or repeating a doubled
+     * letter and hitting a key next to the previous one are cheaper than other errors
+     */
+    public static ErrorModel keyboard() {
+        float[] substitution = new float[ALPHABET * ALPHABET];
+        float[] deletion = new float[ALPHABET * ALPHABET];
+        float[] insertion = new float[ALPHABET * ALPHABET];
+        float[] transposition = new float[ALPHABET * ALPHABET];
+        for (int a = 0; a < ALPHABET; a++) {
+            for (int b = 0; b < ALPHABET; b++) {
+                int i = a * ALPHABET + b;
+                substitution[i] = isAdjacent(a, b) ? SUBSTITUTE_ADJACENT : isVowel(a) && isVowel(b) ? SUBSTITUTE_VOWEL : SUBSTITUTE;
+                deletion[i] = a == b ? DELETE_DOUBLE : DELETE;
+                insertion[i] = a == b ? INSERT_DOUBLE : isAdjacent(a, b) ? INSERT_ADJACENT : INSERT;
+                transposition[i] = TRANSPOSE;
+            }
+        }
+        return new ErrorModel(substitution, deletion, insertion, transposition);
+    }
+
+    public static ErrorModel train(Map<String, String> misspellings) {
+        return train(misspellings, keyboard(), 50);
+    }
+
+    /**
+     * Costs learned from misspellings [correct word -> space separated misspellings, like the SpellCorrect test sets],
+     * smoothed towards prior with the weight of priorWeight occurrences of each context.
+     * Only relative costs are learned: training pairs are all misspelled, so the overall error rate is kept from prior.
+     */
+    public static ErrorModel train(Map<String, String> misspellings, ErrorModel prior, double priorWeight) {
+        // error counts from one cheapest alignment per pair, opportunities from the correct words
+        double[] substitutions = new double[ALPHABET * ALPHABET];
+        double[] deletions = new double[ALPHABET * ALPHABET];
+        double[] insertions = new double[ALPHABET * ALPHABET];
+        double[] transpositions = new double[ALPHABET * ALPHABET];
+        double[] letters = new double[ALPHABET];
+        double[] pairs = new double[ALPHABET * ALPHABET];
+        double errors = 0;
+        for (Map.Entry<String, String> entry : misspellings.entrySet()) {
+            String intended = entry.getKey().toLowerCase();
+            for (String typed : entry.getValue().toLowerCase().split(" ")) {
+                if (typed.isEmpty()) {
+                    continue;
+                }
+                errors += countErrors(intended, typed, substitutions, deletions, insertions, transpositions);
+                int previous = OTHER;
+                for (int i = 0; i < intended.length(); i++) {
+                    int letter = index(intended.charAt(i));
+                    letters[previous]++;
+                    pairs[previous * ALPHABET + letter]++;
+                    previous = letter;
+                }
+                letters[previous]++;
+            }
+        }
+
+        // occurrences of each letter in the correct words
+        double[] occurrences = new double[ALPHABET];
+        for (int a = 0; a < ALPHABET; a++) {
+            for (int b = 0; b < ALPHABET; b++) {
+                occurrences[b] += pairs[a * ALPHABET + b];
+            }
+        }
+
+        // rate scale: makes the prior predict as many errors on the training words as were observed
+        double expected = 0;
+        for (int a = 0; a < ALPHABET; a++) {
+            for (int b = 0; b < ALPHABET; b++) {
+                int i = a * ALPHABET + b;
+                if (a != b) {
+                    expected += occurrences[a] * Math.exp(-prior.substitution[i]);
+                }
+                if (a != b && a != OTHER) {
+                    expected += pairs[i] * Math.exp(-prior.transposition[i]);
+                }
+                expected += pairs[i] * Math.exp(-prior.deletion[i]) + letters[a] * Math.exp(-prior.insertion[i]);
+            }
+        }
+        double scale = expected > 0 && errors > 0 ? errors / expected : 1;
+
+        float[] substitution = new float[ALPHABET * ALPHABET];
+        float[] deletion = new float[ALPHABET * ALPHABET];
+        float[] insertion = new float[ALPHABET * ALPHABET];
+        float[] transposition = new float[ALPHABET * ALPHABET];
+        for (int a = 0; a < ALPHABET; a++) {
+            for (int b = 0; b < ALPHABET; b++) {
+                int i = a * ALPHABET + b;
+                substitution[i] = smooth(substitutions[i], occurrences[a], prior.substitution[i], scale, priorWeight);
+                deletion[i] = smooth(deletions[i], pairs[i], prior.deletion[i], scale, priorWeight);
+                insertion[i] = smooth(insertions[i], letters[a], prior.insertion[i], scale, priorWeight);
+                transposition[i] = smooth(transpositions[i], pairs[i], prior.transposition[i], scale, priorWeight);
+            }
+        }
+        return new ErrorModel(substitution, deletion, insertion, transposition);
+    }
+
+    // -ln of the smoothed error rate, back on the prior's scale
+    private static float smooth(double count, double opportunities, float priorCost, double scale, double priorWeight) {
+        double rate = (count + priorWeight * scale * Math.exp(-priorCost)) / (opportunities + priorWeight);
+        return (float) Math.max(MIN_COST, -Math.log(rate / scale));
+    }
+
+    /**
+     * -ln P(typed|intended) [0 if they are equal]
+     */
+    public double cost(String typed, String intended) {
+        return cost(typed, intended, null, -1);
+    }
+
+    /**
+     * cost(typed, words.word(id)) without building the word [read through {@link FrequencyTable#charAt}]
+     */
+    public double cost(String typed, FrequencyTable words, int id) {
+        return cost(typed, null, words, id);
+    }
+
+    // intended is either the string or entry id of words
+    private double cost(String typed, String intended, FrequencyTable words, int id) {
+        int m = typed.length();
+        int n = (intended != null ? intended.length() : words.length(id));
+        double[][] rows = ROWS.get();
+        if (rows[0].length < m + 1) {
+            rows = new double[3][m * 2 + 1];
+            ROWS.set(rows);
+        }
+        double[] beforePrevious = rows[0];
+        double[] previous = rows[1];
+        double[] row = rows[2];
+
+        // row i: intended[0, i) against every prefix of typed
+        row[0] = 0;
+        for (int j = 1; j <= m; j++) {
+            row[j] = row[j - 1] + insertion[OTHER * ALPHABET + index(typed.charAt(j - 1))];
+        }
+        // chars are compared as they are, their table indices only pick the costs
+        char beforeChar = 0;
+        int before = OTHER;
+        for (int i = 1; i <= n; i++) {
+            double[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = row;
+            row = recycled;
+
+            char ch = intended != null ? intended.charAt(i - 1) : words.charAt(id, i - 1);
+            int letter = index(ch);
+            float deleteCost = deletion[before * ALPHABET + letter];
+            row[0] = previous[0] + deleteCost;
+            for (int j = 1; j <= m; j++) {
+                char typedChar = typed.charAt(j - 1);
+                int typedLetter = index(typedChar);
+                double cost = previous[j - 1] + (ch == typedChar ? 0 : substitution[letter * ALPHABET + typedLetter]);
+                cost = Math.min(cost, previous[j] + deleteCost);
+                cost = Math.min(cost, row[j - 1] + insertion[letter * ALPHABET + typedLetter]);
+                if (i > 1 && j > 1 && ch != beforeChar && ch == typed.charAt(j - 2) && beforeChar == typedChar) {
+                    cost = Math.min(cost, beforePrevious[j - 2] + transposition[before * ALPHABET + letter]);
+                }
+                row[j] = cost;
+            }
+            beforeChar = ch;
+            before = letter;
+        }
+        return row[m];
+    }
+
+    // add the errors of one cheapest unit cost alignment of intended and typed; returns how many
+    private static int countErrors(String intended, String typed, double[] substitutions, double[] deletions,
+                                   double[] insertions, double[] transpositions) {
+        int n = intended.length();
+        int m = typed.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            for (int j = 0; j <= m; j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                int cost = d[i - 1][j - 1] + (intended.charAt(i - 1) == typed.charAt(j - 1) ? 0 : 1);
+                cost = Math.min(cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (isTransposition(intended, typed, i, j)) {
+                    cost = Math.min(cost, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = cost;
+            }
+        }
+
+        // walk back from the end, preferring a match, then transposition, substitution, deletion, insertion
+        int i = n;
+        int j = m;
+        while (i > 0 || j > 0) {
+            int previous = i > 1 ? index(intended.charAt(i - 2)) : OTHER;
+            if (i > 0 && j > 0 && intended.charAt(i - 1) == typed.charAt(j - 1) && d[i][j] == d[i - 1][j - 1]) {
+                i--;
+                j--;
+            } else if (isTransposition(intended, typed, i, j) && d[i][j] == d[i - 2][j - 2] + 1) {
+                transpositions[previous * ALPHABET + index(intended.charAt(i - 1))]++;
+                i -= 2;
+                j -= 2;
+            } else if (i > 0 && j > 0 && d[i][j] == d[i - 1][j - 1] + 1) {
+                substitutions[index(intended.charAt(i - 1)) * ALPHABET + index(typed.charAt(j - 1))]++;
+                i--;
+                j--;
+            } else if (i > 0 && d[i][j] == d[i - 1][j] + 1) {
+                deletions[previous * ALPHABET + index(intended.charAt(i - 1))]++;
+                i--;
+            } else {
+                insertions[(i > 0 ? index(intended.charAt(i - 1)) : OTHER) * ALPHABET + index(typed.charAt(j - 1))]++;
+                j--;
+            }
+        }
+        return d[n][m];
+    }
+
+    private static boolean isTransposition(String intended, String typed, int i, int j) {
+        return i > 1 && j > 1 && intended.charAt(i - 1) != intended.charAt(i - 2)
+                && intended.charAt(i - 1) == typed.charAt(j - 2) && intended.charAt(i - 2) == typed.charAt(j - 1);
+    }
+
+    static int index(char letter) {
+        return letter >= 'a' && letter <= 'z' ? letter - 'a' : OTHER;
+    }
+
+    private static boolean isVowel(int letter) {
+        return letter < OTHER && "aeiouy".indexOf('a' + letter) >= 0;
+    }
+
+    private static boolean isAdjacent(int a, int b) {
+        if (a == OTHER || b == OTHER || a == b) {
+            return false;
+        }
+        double[] keyA = key((char) ('a' + a));
+        double[] keyB = key((char) ('a' + b));
+        return Math.hypot(keyA[0] - keyB[0], keyA[1] - keyB[1]) <= 1.3;
+    }
+
+    // [x, y] of a letter's key
+    private static double[] key(char letter) {
+        for (int row = 0; row < KEYBOARD_ROWS.length; row++) {
+            int column = KEYBOARD_ROWS[row].indexOf(letter);
+            if (column >= 0) {
+                return new double[]{column + KEYBOARD_ROW_OFFSETS[row], row};
+            }
+        }
+        throw new IllegalArgumentException("not a letter: " + letter);
+    }
+}
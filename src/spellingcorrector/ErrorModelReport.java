@@ -0,0 +1,54 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Accuracy and time per correct() call of the trivial error model [edit1 before edit2 before frequency] against the
+ * weighted {@link ErrorModel}s: {@link ErrorModel#keyboard()}, and {@link ErrorModel#train} on the first of the
+ * {@link TestSets}. The trained model is only fair on the second test set, as it has seen the first.
+ * <pre>
+ * java spellingcorrector.ErrorModelReport big.txt
+ * </pre>
+ */
+public class ErrorModelReport {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        WordModel trivial = WordModel.load(wordsFile, Engine.EDITS);
+        WordModel keyboard = trivial.withErrorModel(ErrorModel.keyboard());
+        WordModel trained = trivial.withErrorModel(ErrorModel.train(TestSets.test1()));
+
+        report("trivial ", trivial);
+        report("keyboard", keyboard);
+        report("trained ", trained);
+    }
+
+    private static void report(String name, WordModel model) {
+        System.out.println(name + " test1 " + test(model, TestSets.test1()) + "  test2 " + test(model, TestSets.test2()));
+    }
+
+    // percent correct and microseconds per word [best of ROUNDS]
+    private static String test(WordModel model, Map<String, String> testWords) {
+        int n = 0;
+        int good = 0;
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            n = 0;
+            good = 0;
+            long start = System.nanoTime();
+            for (Map.Entry<String, String> entry : testWords.entrySet()) {
+                for (String misspelling : entry.getValue().split(" ")) {
+                    n++;
+                    if (entry.getKey().equals(model.correct(misspelling))) {
+                        good++;
+                    }
+                }
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        return String.format("%5.1f%% %6.1f us/word", 100.0 * good / n, bestNanos / 1000.0 / n);
+    }
+}
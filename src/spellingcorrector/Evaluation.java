@@ -0,0 +1,245 @@
+package spellingcorrector;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Accuracy and per-word latency of {@link WordModel#correct(String)} on the {@link TestSets}, for several engines side by
+ * side.
+ * <p>
+ * The misspellings of a test set are corrected in parallel on the common ForkJoinPool, once to warm up and once timed;
+ * every word is timed on its own, so the percentiles are those of single calls made under full parallel load. The word
+ * frequencies are counted once and every engine indexes the same table. Accuracy and unknown counts are reproducible
+ * run to run; latencies depend on the machine, which the JSON report records along with the results.
+ * <pre>
+ * java spellingcorrector.Evaluation big.txt [EDITS,SYMMETRIC_DELETE,TRIE] [report.json | -]
+ * </pre>
+ */
+public class Evaluation {
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        List<Engine> engines = new ArrayList<Engine>();
+        if (args.length > 1) {
+            for (String engine : args[1].split(",")) {
+                engines.add(Engine.valueOf(engine.trim().toUpperCase()));
+            }
+        } else {
+            engines.addAll(Arrays.asList(Engine.values()));
+        }
+
+        FrequencyTable nWords = new CorpusLoader().countWords(wordsFile);
+        List<Result> results = new ArrayList<Result>();
+        for (Engine engine : engines) {
+            WordModel model = new WordModel(nWords, engine);
+            results.add(run(engine.name(), model, "test1", TestSets.test1()));
+            results.add(run(engine.name(), model, "test2", TestSets.test2()));
+        }
+
+        System.out.print(table(results));
+        if (args.length > 2) {
+            String json = json(wordsFile, results);
+            if (args[2].equals("-")) {
+                System.out.println(json);
+            } else {
+                Writer out = new OutputStreamWriter(new FileOutputStream(args[2]), StandardCharsets.UTF_8);
+                try {
+                    out.write(json);
+                    out.write('\n');
+                } finally {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Correct every misspelling of testWords [correct word -> space separated misspellings] with model, in parallel
+     */
+    public static Result run(String label, final WordModel model, String testSet, Map<String, String> testWords) {
+        List<String> expectedWords = new ArrayList<String>();
+        List<String> typedWords = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : testWords.entrySet()) {
+            for (String typed : entry.getValue().split(" ")) {
+                expectedWords.add(entry.getKey());
+                typedWords.add(typed);
+            }
+        }
+        final String[] expected = expectedWords.toArray(new String[0]);
+        final String[] typed = typedWords.toArray(new String[0]);
+        final String[] actual = new String[typed.length];
+        final long[] nanos = new long[typed.length];
+
+        // warm up, then time each word
+        IntStream.range(0, typed.length).parallel().forEach(i -> actual[i] = model.correct(typed[i]));
+        long start = System.nanoTime();
+        IntStream.range(0, typed.length).parallel().forEach(i -> {
+            long wordStart = System.nanoTime();
+            actual[i] = model.correct(typed[i]);
+            nanos[i] = System.nanoTime() - wordStart;
+        });
+        long wallNanos = System.nanoTime() - start;
+
+        int bad = 0;
+        int unknown = 0;
+        for (int i = 0; i < typed.length; i++) {
+            if (!expected[i].equals(actual[i])) {
+                bad++;
+            }
+            if (!model.isKnown(expected[i])) {
+                unknown++;
+            }
+        }
+        Arrays.sort(nanos);
+        return new Result(label, testSet, typed.length, bad, unknown, wallNanos, nanos);
+    }
+
+    /**
+     * One line per engine and test set
+     */
+    public static String table(List<Result> results) {
+        StringBuilder table = new StringBuilder(String.format("%-18s %-6s %5s %5s %7s %6s %8s %8s %8s %8s %8s%n",
+                "engine", "set", "n", "bad", "unknown", "pct", "p50 us", "p90 us", "p99 us", "max us", "wall ms"));
+        for (Result result : results) {
+            table.append(String.format("%-18s %-6s %5d %5d %7d %6.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", result.label,
+                    result.testSet, result.n, result.bad, result.unknown, 100 * result.accuracy(), result.percentileMicros(0.5),
+                    result.percentileMicros(0.9), result.percentileMicros(0.99), result.percentileMicros(1), result.wallNanos / 1e6));
+        }
+        return table.toString();
+    }
+
+    /**
+     * The results and the setup they were measured on, as a JSON object
+     */
+    public static String json(String wordsFile, List<Result> results) {
+        Map<String, Object> setup = new LinkedHashMap<String, Object>();
+        setup.put("wordsFile", wordsFile);
+        setup.put("java", System.getProperty("java.version"));
+        setup.put("vm", System.getProperty("java.vm.name"));
+        setup.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        setup.put("processors", Runtime.getRuntime().availableProcessors());
+        setup.put("parallelism", ForkJoinPool.getCommonPoolParallelism());
+
+        StringBuilder json = new StringBuilder("{\"setup\": {");
+        String separator = "";
+        for (Map.Entry<String, Object> entry : setup.entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(": ");
+            json.append(entry.getValue() instanceof String ? quote((String) entry.getValue()) : entry.getValue());
+            separator = ", ";
+        }
+        json.append("}, \"results\": [");
+        separator = "\n  ";
+        for (Result result : results) {
+            json.append(separator).append(result.toJson());
+            separator = ",\n  ";
+        }
+        return json.append("\n]}").toString();
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                quoted.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) ch));
+            } else {
+                quoted.append(ch);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Outcome of one test set on one engine
+     */
+    public static final class Result {
+
+        private final String label;
+        private final String testSet;
+        private final int n;
+        private final int bad;
+        private final int unknown;
+        private final long wallNanos;
+        // per-word latencies, sorted
+        private final long[] nanos;
+
+        Result(String label, String testSet, int n, int bad, int unknown, long wallNanos, long[] nanos) {
+            this.label = label;
+            this.testSet = testSet;
+            this.n = n;
+            this.bad = bad;
+            this.unknown = unknown;
+            this.wallNanos = wallNanos;
+            this.nanos = nanos;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public String testSet() {
+            return testSet;
+        }
+
+        public int n() {
+            return n;
+        }
+
+        public int bad() {
+            return bad;
+        }
+
+        // misspellings whose correct word is not in the dictionary
+        public int unknown() {
+            return unknown;
+        }
+
+        public double accuracy() {
+            return n == 0 ? 0 : (double) (n - bad) / n;
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        // nearest-rank percentile of the per-word latencies; fraction 1 is the maximum
+        public double percentileMicros(double fraction) {
+            if (nanos.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(fraction * nanos.length);
+            return nanos[Math.min(nanos.length, Math.max(1, rank)) - 1] / 1000.0;
+        }
+
+        String toJson() {
+            return "{\"engine\": " + quote(label) + ", \"testSet\": " + quote(testSet) + ", \"n\": " + n + ", \"bad\": " + bad
+                    + ", \"unknown\": " + unknown + ", \"accuracy\": " + String.format(Locale.ROOT, "%.4f", accuracy())
+                    + ", \"wallMs\": " + String.format(Locale.ROOT, "%.1f", wallNanos / 1e6)
+                    + ", \"latencyMicros\": {\"p50\": " + String.format(Locale.ROOT, "%.1f", percentileMicros(0.5))
+                    + ", \"p90\": " + String.format(Locale.ROOT, "%.1f", percentileMicros(0.9))
+                    + ", \"p99\": " + String.format(Locale.ROOT, "%.1f", percentileMicros(0.99))
+                    + ", \"max\": " + String.format(Locale.ROOT, "%.1f", percentileMicros(1)) + "}}";
+        }
+
+        @Override
+        public String toString() {
+            return "{'bad': " + bad + ", 'unknown': " + unknown + ", 'pct': " + String.format("%.1f", 100 * accuracy())
+                    + ", 'n': " + n + ", 'wall ms': " + String.format("%.1f", wallNanos / 1e6)
+                    + ", 'p50 us': " + String.format("%.1f", percentileMicros(0.5))
+                    + ", 'p99 us': " + String.format("%.1f", percentileMicros(0.99)) + "}";
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * What the {@link BloomFilter} of a {@link FrequencyTable} costs and saves on the EDITS search: its size, the share of
+ * probes it rules out, its false positive rate [non-words it let through out of all non-words probed], and the time to
+ * correct the misspellings of the {@link TestSets} with and without it - with warm caches, and with caches cold [a
+ * buffer larger than the last level cache is read between two words]. Each round times the filtered and the
+ * unfiltered model back to back over one table.
+ * <pre>
+ * java spellingcorrector.FilterReport big.txt [rounds] [evict megabytes]
+ * </pre>
+ */
+public class FilterReport {
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int evictMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        FrequencyTable table = new CorpusLoader().countWords(wordsFile);
+        WordModel filtered = new WordModel(table, Engine.EDITS);
+        WordModel unfiltered = new WordModel(table.withoutFilter(), Engine.EDITS);
+        List<String> misspellings = TestSets.misspellings();
+        long[] evict = new long[evictMegabytes << 17];
+
+        System.out.println("words: " + table.size() + ", table: " + (table.memoryBytes() - table.filterBytes())
+                + " bytes, filter: " + table.filterBytes() + " bytes (" + BloomFilter.BITS_PER_WORD + " bits/word)");
+
+        SearchCounters counters = SearchCounters.get();
+        long probes = counters.probes;
+        long filteredProbes = counters.filtered;
+        long falsePositives = counters.falsePositives;
+        correct(filtered, misspellings, null);
+        probes = counters.probes - probes;
+        filteredProbes = counters.filtered - filteredProbes;
+        falsePositives = counters.falsePositives - falsePositives;
+        System.out.println("probes: " + probes + ", ruled out: " + filteredProbes + " ("
+                + String.format("%.1f", 100.0 * filteredProbes / probes) + "%), false positive rate: "
+                + String.format("%.2f", 100.0 * falsePositives / (falsePositives + filteredProbes)) + "%");
+
+        for (boolean cold : new boolean[]{false, true}) {
+            long with = 0;
+            long without = 0;
+            for (int round = 1; round <= rounds; round++) {
+                with += correct(filtered, misspellings, cold ? evict : null);
+                without += correct(unfiltered, misspellings, cold ? evict : null);
+            }
+            System.out.println((cold ? "cold" : "warm") + ": with filter " + with / rounds / 1000 + " us/round, without "
+                    + without / rounds / 1000 + " us/round, speedup " + String.format("%.2f", (double) without / with));
+        }
+    }
+
+    // nanoseconds spent correcting words, reading evict [if not null] before each word but not timing that
+    private static long correct(WordModel model, List<String> words, long[] evict) {
+        long spent = 0;
+        long sink = 0;
+        for (String word : words) {
+            if (evict != null) {
+                for (int i = 0; i < evict.length; i += 8) {
+                    sink += evict[i]++;
+                }
+            }
+            long start = System.nanoTime();
+            sink += model.correct(word).length();
+            spent += System.nanoTime() - start;
+        }
+        return sink == Long.MIN_VALUE ? 0 : spent;
+    }
+}
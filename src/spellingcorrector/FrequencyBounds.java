@@ -0,0 +1,90 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Upper bounds on the frequency of dictionary words, by word length and by prefix.
+ * <p>
+ * Used by {@link EditSearch} to skip every edit that cannot produce a word more frequent than the best one found so far:
+ * an edit changes the length by at most 1, and an edit at position i keeps the first i letters - so it can only find
+ * words under that prefix [the frequency of the best word in the trie subtree of the prefix].
+ * Prefixes that start no dictionary word have bound 0, which cuts the search for unknown words short.
+ * Lengths above {@link #MAX_LENGTH} share one bucket.
+ */
+final class FrequencyBounds {
+
+    static final int MAX_LENGTH = 64;
+
+    private final int[] byLength;
+    private final FrequencyTable byPrefix;
+
+    private FrequencyBounds(int[] byLength, FrequencyTable byPrefix) {
+        this.byLength = byLength;
+        this.byPrefix = byPrefix;
+    }
+
+    FrequencyBounds(FrequencyTable nWords) {
+        byLength = new int[MAX_LENGTH + 1];
+        FrequencyTable.Builder prefixes = new FrequencyTable.Builder(nWords.size() * 4);
+        for (int id = 0; id < nWords.size(); id++) {
+            String word = nWords.word(id);
+            int frequency = nWords.frequency(id);
+            int length = Math.min(word.length(), MAX_LENGTH);
+
+            byLength[length] = Math.max(byLength[length], frequency);
+            for (int end = 1; end <= word.length(); end++) {
+                prefixes.max(word.substring(0, end), frequency);
+            }
+        }
+        // every bound is a word frequency, so a quantized table's levels hold them all exactly
+        byPrefix = prefixes.build().quantized(nWords.frequencyBits());
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        ModelSnapshot.writeInts(out, byLength);
+        byPrefix.write(out);
+    }
+
+    static FrequencyBounds read(ByteBuffer in) throws IOException {
+        int[] byLength = ModelSnapshot.readInts(in);
+        if (byLength.length != MAX_LENGTH + 1) {
+            throw new IOException("corrupt frequency bounds");
+        }
+        return new FrequencyBounds(byLength, FrequencyTable.read(in));
+    }
+
+    // bounds written by write(), the prefix table left in the mapped snapshot
+    static FrequencyBounds map(ModelSnapshot.Mapping in) throws IOException {
+        IntBuffer lengths = in.ints();
+        if (lengths.capacity() != MAX_LENGTH + 1) {
+            throw new IOException("corrupt frequency bounds");
+        }
+        int[] byLength = new int[MAX_LENGTH + 1];
+        lengths.get(byLength);
+        return new FrequencyBounds(byLength, FrequencyTable.map(in));
+    }
+
+    // bytes of the length bounds and the prefix table [see FrequencyTable#memoryBytes]
+    long memoryBytes() {
+        return FrequencyTable.arrayBytes(byLength.length, 4) + byPrefix.memoryBytes();
+    }
+
+    // max frequency of words with length in [minLength, maxLength]
+    int max(int minLength, int maxLength) {
+        int max = 0;
+        for (int length = Math.max(0, minLength); length <= maxLength && length <= MAX_LENGTH; length++) {
+            max = Math.max(max, byLength[length]);
+        }
+        return maxLength > MAX_LENGTH ? Math.max(max, byLength[MAX_LENGTH]) : max;
+    }
+
+    /**
+     * Max frequency of words starting with chars[0, length) [hash must be the String.hashCode() of that prefix]
+     */
+    int max(char[] chars, int length, int hash) {
+        return byPrefix.get(chars, 0, length, hash);
+    }
+}
@@ -0,0 +1,254 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps a {@link SpellCorrector}'s word frequencies up to date from live text.
+ * <p>
+ * Learned words are counted into a concurrent delta buffer [LongAdder per word, each text's counts aggregated locally
+ * first]. A merge - on demand, or every mergeInterval - folds the buffer into a new frozen {@link WordModel} and swaps it
+ * in, so {@link SpellCorrector#correct(String)} never waits for learning and always sees a complete model; learned words
+ * show up in corrections after the next merge.
+ * <p>
+ * Text is tokenized like the corpus was [runs of a-z after lowercasing, or of any letters lowercased one by one if the
+ * corrector is unicode, see {@link CorpusLoader}] and a learned word counts the same as one more occurrence in the
+ * corpus. To let stale words fade, every merge first multiplies each word's count by decay [rounded down] and drops
+ * words whose count falls below minCount. Word pair counts of the model are kept as they are [minus pairs with a
+ * dropped word], they are not learned. A merge replaces the model, so reloading the corrector from a file while a
+ * learner is attached loses one or the other.
+ * <pre>
+ * FrequencyLearner learner = FrequencyLearner.builder(corrector).decay(0.99).mergeInterval(10, TimeUnit.SECONDS).build();
+ * learner.learn(text);
+ * </pre>
+ */
+public class FrequencyLearner {
+
+    private final SpellCorrector corrector;
+    private final double decay;
+    private final int minCount;
+    private final ScheduledExecutorService scheduler;
+
+    // learners share the read lock; a merge takes the write lock only to swap the buffer
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<String, LongAdder>();
+    private final LongAdder learnedTokens = new LongAdder();
+    private volatile long merges;
+
+    private FrequencyLearner(SpellCorrector corrector, double decay, int minCount, long mergeIntervalMillis) {
+        this.corrector = corrector;
+        this.decay = decay;
+        this.minCount = minCount;
+        if (mergeIntervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "frequency-learner");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    merge();
+                }
+            }, mergeIntervalMillis, mergeIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public static Builder builder(SpellCorrector corrector) {
+        return new Builder(corrector);
+    }
+
+    /**
+     * Count the words of text [safe to call from any number of threads]
+     */
+    public void learn(CharSequence text) {
+        // local counts first: one shared update per distinct word of text
+        HashMap<String, int[]> counts = new HashMap<String, int[]>();
+        boolean unicode = corrector.isUnicode();
+        if (!unicode) {
+            text = text.toString().toLowerCase();
+        }
+        char[] word = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char ch = i < text.length() ? text.charAt(i) : ' ';
+            if (unicode ? Character.isLetter(ch) : ch >= 'a' && ch <= 'z') {
+                word[length++] = unicode ? Character.toLowerCase(ch) : ch;
+            } else if (length > 0) {
+                String key = new String(word, 0, length);
+                int[] count = counts.get(key);
+                if (count == null) {
+                    counts.put(key, new int[]{1});
+                } else {
+                    count[0]++;
+                }
+                length = 0;
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        ReentrantReadWriteLock.ReadLock lock = bufferLock.readLock();
+        lock.lock();
+        try {
+            ConcurrentHashMap<String, LongAdder> buffer = pending;
+            for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                LongAdder adder = buffer.get(entry.getKey());
+                if (adder == null) {
+                    LongAdder created = new LongAdder();
+                    adder = buffer.putIfAbsent(entry.getKey(), created);
+                    if (adder == null) {
+                        adder = created;
+                    }
+                }
+                adder.add(entry.getValue()[0]);
+                learnedTokens.add(entry.getValue()[0]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // learn every line of reader
+    public void learn(Reader reader) throws IOException {
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            learn(line);
+        }
+    }
+
+    /**
+     * Apply decay and the words learned since the last merge to the corrector's current model, compact the result like
+     * the corrector was built [minCount, maxWords and frequencyBits of {@link SpellCorrector.Builder}] and swap it in.
+     * Returns the new model.
+     */
+    public synchronized WordModel merge() {
+        ConcurrentHashMap<String, LongAdder> learned;
+        ReentrantReadWriteLock.WriteLock lock = bufferLock.writeLock();
+        lock.lock();
+        try {
+            learned = pending;
+            pending = new ConcurrentHashMap<String, LongAdder>();
+        } finally {
+            lock.unlock();
+        }
+
+        // model frequencies are counts + 1 [smoothing]
+        WordModel current = corrector.model();
+        FrequencyTable nWords = current.table();
+        FrequencyTable.Builder builder = new FrequencyTable.Builder(nWords.size() + learned.size());
+        boolean dropped = false;
+        for (int id = 0; id < nWords.size(); id++) {
+            String word = nWords.word(id);
+            long count = decay < 1 ? (long) ((nWords.frequency(id) - 1) * decay) : nWords.frequency(id) - 1;
+            LongAdder delta = learned.remove(word);
+            if (delta != null) {
+                count += delta.sum();
+            }
+            if (count >= minCount) {
+                builder.add(word, (int) Math.min(Integer.MAX_VALUE - 1, count) + 1);
+            } else {
+                dropped = true;
+            }
+        }
+        for (Map.Entry<String, LongAdder> entry : learned.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count >= minCount) {
+                builder.add(entry.getKey(), (int) Math.min(Integer.MAX_VALUE - 1, count) + 1);
+            }
+        }
+
+        // kept words keep their ids [added first, in id order] unless some were dropped before them
+        FrequencyTable mergedWords = builder.build();
+        BigramTable bigrams = current.bigrams();
+        if (bigrams != null && dropped) {
+            bigrams = bigrams.remap(nWords, mergedWords);
+        }
+        WordModel merged = new WordModel(mergedWords, bigrams, current.engine(), current.maxDistance());
+        if (current.errorModel() != null) {
+            merged = merged.withErrorModel(current.errorModel());
+        }
+        merged = corrector.compact(merged);
+        corrector.swap(merged);
+        merges++;
+        return merged;
+    }
+
+    // words learned so far, merged or not
+    public long learnedTokens() {
+        return learnedTokens.sum();
+    }
+
+    public long mergeCount() {
+        return merges;
+    }
+
+    /**
+     * Stop merging periodically; words learned since the last merge are dropped unless merge() is called
+     */
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public static class Builder {
+
+        private final SpellCorrector corrector;
+        private double decay = 1;
+        private int minCount = 1;
+        private long mergeIntervalMillis;
+
+        private Builder(SpellCorrector corrector) {
+            this.corrector = corrector;
+        }
+
+        // count multiplier applied on every merge [default 1: never forget]
+        public Builder decay(double decay) {
+            this.decay = decay;
+            return this;
+        }
+
+        // words counted fewer times are dropped on merge [default 1]
+        public Builder minCount(int minCount) {
+            this.minCount = minCount;
+            return this;
+        }
+
+        // merge automatically at this interval [default never: call merge()]
+        public Builder mergeInterval(long interval, TimeUnit unit) {
+            this.mergeIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        public FrequencyLearner build() {
+            if (corrector == null) {
+                throw new IllegalStateException("corrector must be set");
+            }
+            if (!(decay > 0 && decay <= 1)) {
+                throw new IllegalStateException("decay must be in (0, 1]: " + decay);
+            }
+            if (minCount < 1) {
+                throw new IllegalStateException("minCount must be at least 1: " + minCount);
+            }
+            return new FrequencyLearner(corrector, decay, minCount, mergeIntervalMillis);
+        }
+    }
+}
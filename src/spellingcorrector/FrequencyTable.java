@@ -0,0 +1,796 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Word -> frequency table without per-entry objects.
+ * <p>
+ * All keys are packed as Latin-1 bytes into one arena - or, once a word with a character beyond Latin-1 is added, as
+ * 2-byte UTF-16 code units [a wide table; languages written in Latin-1 keep one byte per letter]. An entry is just an
+ * index into the parallel int arrays (key offset, hash, frequency) and the open-addressing slot array holds entry
+ * index + 1 [0 = empty slot, linear probing].
+ * The hash is the polynomial String.hashCode(), so a probe can be made straight from a char[] range - or from a hash
+ * computed incrementally by the caller - without allocating a String.
+ * <p>
+ * A built table also has a {@link BloomFilter} of its hashes, so most non-words are ruled out without touching the slots:
+ * {@link #get(String)} and {@link #get(char[], int, int)} consult it, callers that bring their own hash ask
+ * {@link #mightContain} first.
+ * <p>
+ * A table can also live outside the heap: {@link ModelSnapshot#map} leaves it in the snapshot file and looks words up in
+ * the mapped file itself, through buffer views of the same arrays [with the same layout, so lookups create no objects].
+ * <p>
+ * For small deployments a table can be cut down to its frequent words [{@link #pruned}] and keep its frequencies as 8
+ * or 16-bit codes into a table of levels [{@link #quantized}]; see {@link CompactReport} for what that costs in accuracy.
+ * <p>
+ * A table is read-only once built [see {@link Builder}], so it is safe to share between threads.
+ * Frequencies are positive, {@link #get} returns 0 for an unknown word.
+ */
+public final class FrequencyTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] slots;
+    private int mask;
+    private int[] hashes;
+    private int[] offsets;
+    private int[] frequencies;
+    private byte[] arena;
+    // keys are 2-byte big-endian UTF-16 code units rather than Latin-1 bytes
+    private boolean wide;
+    private int size;
+    // null while building and in withoutFilter() views
+    private BloomFilter filter;
+    // views of a mapped snapshot in place of the arrays above [which are null then], see map()
+    private IntBuffer mappedSlots;
+    private IntBuffer mappedHashes;
+    private IntBuffer mappedOffsets;
+    private IntBuffer mappedFrequencies;
+    private ByteBuffer mappedArena;
+    // quantized() frequencies in place of frequencies and mappedFrequencies [which are null then]: one of the code
+    // arrays indexes levels
+    private byte[] byteCodes;
+    private char[] charCodes;
+    private int[] levels;
+
+    private FrequencyTable(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        mask = capacity - 1;
+        hashes = new int[capacity / 2];
+        offsets = new int[capacity / 2 + 1];
+        frequencies = new int[capacity / 2];
+        arena = new byte[capacity * 4];
+    }
+
+    private FrequencyTable(int[] slots, int[] hashes, int[] offsets, int[] frequencies, byte[] arena, boolean wide) {
+        this.slots = slots;
+        this.mask = slots.length - 1;
+        this.hashes = hashes;
+        this.offsets = offsets;
+        this.frequencies = frequencies;
+        this.arena = arena;
+        this.wide = wide;
+        this.size = hashes.length;
+    }
+
+    private FrequencyTable(IntBuffer slots, IntBuffer hashes, IntBuffer offsets, IntBuffer frequencies, ByteBuffer arena,
+                           boolean wide) {
+        this.mappedSlots = slots;
+        this.mask = slots.capacity() - 1;
+        this.mappedHashes = hashes;
+        this.mappedOffsets = offsets;
+        this.mappedFrequencies = frequencies;
+        this.mappedArena = arena;
+        this.wide = wide;
+        this.size = hashes.capacity();
+    }
+
+    // same arrays or views, no filter
+    private FrequencyTable(FrequencyTable table) {
+        this.slots = table.slots;
+        this.mask = table.mask;
+        this.hashes = table.hashes;
+        this.offsets = table.offsets;
+        this.frequencies = table.frequencies;
+        this.arena = table.arena;
+        this.mappedSlots = table.mappedSlots;
+        this.mappedHashes = table.mappedHashes;
+        this.mappedOffsets = table.mappedOffsets;
+        this.mappedFrequencies = table.mappedFrequencies;
+        this.mappedArena = table.mappedArena;
+        this.byteCodes = table.byteCodes;
+        this.charCodes = table.charCodes;
+        this.levels = table.levels;
+        this.wide = table.wide;
+        this.size = table.size;
+    }
+
+    public static FrequencyTable of(Map<String, Integer> nWords) {
+        Builder builder = new Builder(nWords.size());
+        for (Map.Entry<String, Integer> entry : nWords.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    // same as String.hashCode()
+    public static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    public int get(String word) {
+        int hash = word.hashCode();
+        if (!mightContain(hash)) {
+            return 0;
+        }
+        int id = id(word, hash);
+        return id >= 0 ? frequency(id) : 0;
+    }
+
+    // entry number of word, -1 if it is unknown
+    public int id(String word) {
+        return id(word, word.hashCode());
+    }
+
+    private int id(String word, int hash) {
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = entry(slot) - 1;
+            if (id < 0 || hashAt(id) == hash && keyEquals(id, word)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Entry number of the word in chars[offset, offset + length), -1 if it is unknown [hash as for {@link #get(char[], int, int, int)}]
+     */
+    public int id(char[] chars, int offset, int length, int hash) {
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = entry(slot) - 1;
+            if (id < 0 || hashAt(id) == hash && keyEquals(id, chars, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    // entry number of the word stored as Latin-1 bytes in bytes[offset, offset + length), -1 if it is unknown
+    int id(byte[] bytes, int offset, int length) {
+        if (wide) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (bytes[offset + i] & 0xFF);
+            }
+            return id(chars, 0, length, hash(chars, 0, length));
+        }
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + (bytes[i] & 0xFF);
+        }
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = entry(slot) - 1;
+            if (id < 0 || hashAt(id) == hash && keyEquals(id, bytes, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    public int get(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        return mightContain(hash) ? get(chars, offset, length, hash) : 0;
+    }
+
+    /**
+     * false if no word has this hash [see {@link BloomFilter}]; a probe with it would find nothing
+     */
+    public boolean mightContain(int hash) {
+        return filter == null || filter.mightContain(hash);
+    }
+
+    /**
+     * This table without its filter [same arrays; every hash might be contained], to measure what the filter saves
+     */
+    public FrequencyTable withoutFilter() {
+        return new FrequencyTable(this);
+    }
+
+    /**
+     * The words seen at least minCount times in the corpus [frequency minus the smoothing seed, see
+     * {@link WordModel#addWordFrequency}], at most maxWords of them [the most frequent; among equal frequencies the
+     * first added]. A new heap table with its own filter and entry numbers, or this table if no word is dropped.
+     */
+    public FrequencyTable pruned(int minCount, int maxWords) {
+        if (maxWords < 0) {
+            throw new IllegalArgumentException("maxWords must not be negative: " + maxWords);
+        }
+        int[] kept = new int[size];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            if (frequency(id) - 1 >= minCount) {
+                kept[count++] = id;
+            }
+        }
+        if (count > maxWords) {
+            // by descending frequency, then by id
+            long[] ranked = new long[count];
+            for (int i = 0; i < count; i++) {
+                ranked[i] = (long) (Integer.MAX_VALUE - frequency(kept[i])) << 32 | kept[i];
+            }
+            Arrays.sort(ranked);
+            count = maxWords;
+            for (int i = 0; i < count; i++) {
+                kept[i] = (int) ranked[i];
+            }
+            Arrays.sort(kept, 0, count);
+        }
+        if (count == size) {
+            return this;
+        }
+        Builder builder = new Builder(count);
+        for (int i = 0; i < count; i++) {
+            builder.add(this, kept[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * This table with its frequencies stored as bits-bit codes [8 or 16; 32 returns this table] into a table of levels.
+     * A table with at most 2^bits distinct frequencies keeps them exactly; otherwise the levels are 2^bits steps
+     * evenly spaced in log(frequency) from 1 to the largest frequency, and a frequency reads back as its nearest level
+     * [exact while a step is less than 1, then within half a step in ratio]. The order of frequencies is kept, close
+     * ones may become equal. Same keys, entry numbers and filter [a mapped table's stay in the file]; snapshots store
+     * the frequencies decoded.
+     */
+    public FrequencyTable quantized(int bits) {
+        if (bits == 32) {
+            return this;
+        }
+        if (bits != 8 && bits != 16) {
+            throw new IllegalArgumentException("bits must be 8, 16 or 32: " + bits);
+        }
+        int[] values = new int[size];
+        for (int id = 0; id < size; id++) {
+            values[id] = frequency(id);
+        }
+        int[] distinct = distinct(values.clone());
+        int maxLevels = 1 << bits;
+        if (distinct.length > maxLevels) {
+            double step = Math.log(distinct[distinct.length - 1]) / (maxLevels - 1);
+            for (int id = 0; id < size; id++) {
+                values[id] = (int) Math.round(Math.exp(Math.round(Math.log(values[id]) / step) * step));
+            }
+            distinct = distinct(values.clone());
+        }
+
+        FrequencyTable table = new FrequencyTable(this);
+        table.filter = filter;
+        table.frequencies = null;
+        table.mappedFrequencies = null;
+        table.levels = distinct;
+        table.byteCodes = (bits == 8 ? new byte[size] : null);
+        table.charCodes = (bits == 16 ? new char[size] : null);
+        for (int id = 0; id < size; id++) {
+            int code = Arrays.binarySearch(distinct, values[id]);
+            if (bits == 8) {
+                table.byteCodes[id] = (byte) code;
+            } else {
+                table.charCodes[id] = (char) code;
+            }
+        }
+        return table;
+    }
+
+    // sorted values without repeats [sorts values]
+    private static int[] distinct(int[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (count == 0 || values[i] != values[count - 1]) {
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    // bits a frequency is stored in: 32, or 8 or 16 for a quantized() table
+    public int frequencyBits() {
+        return byteCodes != null ? 8 : charCodes != null ? 16 : 32;
+    }
+
+    /**
+     * Lookup with a hash the caller already has [must equal {@link #hash(char[], int, int)} of the range]
+     */
+    public int get(char[] chars, int offset, int length, int hash) {
+        int id = id(chars, offset, length, hash);
+        return id >= 0 ? frequency(id) : 0;
+    }
+
+    public boolean contains(String word) {
+        return get(word) != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // some word has a character beyond Latin-1
+    public boolean isWide() {
+        return wide;
+    }
+
+    // the table is a view of a mapped snapshot [see ModelSnapshot#map]
+    public boolean isMapped() {
+        return slots == null;
+    }
+
+    // entries are numbered 0 .. size() - 1
+    public String word(int id) {
+        int offset = offset(id);
+        int length = offset(id + 1) - offset;
+        byte[] bytes = arena;
+        if (bytes == null) {
+            bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = mappedArena.get(offset + i);
+            }
+            offset = 0;
+        }
+        return new String(bytes, offset, length, wide ? StandardCharsets.UTF_16BE : StandardCharsets.ISO_8859_1);
+    }
+
+    public int frequency(int id) {
+        if (frequencies != null) {
+            return frequencies[id];
+        }
+        if (byteCodes != null) {
+            return levels[byteCodes[id] & 0xFF];
+        }
+        return charCodes != null ? levels[charCodes[id]] : mappedFrequencies.get(id);
+    }
+
+    // length of word(id) without building it
+    public int length(int id) {
+        return wide ? (offset(id + 1) - offset(id)) >> 1 : offset(id + 1) - offset(id);
+    }
+
+    // word(id).charAt(index) without building the word
+    public char charAt(int id, int index) {
+        if (wide) {
+            int at = offset(id) + 2 * index;
+            return (char) ((key(at) & 0xFF) << 8 | (key(at + 1) & 0xFF));
+        }
+        return (char) (key(offset(id) + index) & 0xFF);
+    }
+
+    // entry index + 1 in slot, 0 if empty
+    private int entry(int slot) {
+        return slots != null ? slots[slot] : mappedSlots.get(slot);
+    }
+
+    private int hashAt(int id) {
+        return hashes != null ? hashes[id] : mappedHashes.get(id);
+    }
+
+    private int offset(int id) {
+        return offsets != null ? offsets[id] : mappedOffsets.get(id);
+    }
+
+    // byte of the key arena
+    private byte key(int index) {
+        return arena != null ? arena[index] : mappedArena.get(index);
+    }
+
+    /**
+     * Bytes held by this table's arrays [array headers and filter included, table object itself excluded]; for a mapped
+     * table the bytes of the file it looks up, none of them on the heap [quantized frequencies excepted]
+     */
+    public long memoryBytes() {
+        if (isMapped()) {
+            return 4L * (mappedSlots.capacity() + mappedHashes.capacity() + mappedOffsets.capacity()) + mappedArena.capacity()
+                    + frequencyBytes() + filterBytes();
+        }
+        return arrayBytes(slots.length, 4) + arrayBytes(hashes.length, 4) + arrayBytes(offsets.length, 4)
+                + arrayBytes(arena.length, 1) + frequencyBytes() + filterBytes();
+    }
+
+    // bytes of the frequencies, or of their codes and levels
+    private long frequencyBytes() {
+        if (frequencies != null) {
+            return arrayBytes(frequencies.length, 4);
+        }
+        if (levels != null) {
+            return (byteCodes != null ? arrayBytes(byteCodes.length, 1) : arrayBytes(charCodes.length, 2))
+                    + arrayBytes(levels.length, 4);
+        }
+        return 4L * mappedFrequencies.capacity();
+    }
+
+    // bytes of the filter, 0 without one
+    public long filterBytes() {
+        return filter != null ? filter.memoryBytes() : 0;
+    }
+
+    // the arrays as they are, slot layout and filter included [see ModelSnapshot]; quantized frequencies decoded
+    void write(DataOutputStream out) throws IOException {
+        if (isMapped()) {
+            ModelSnapshot.writeInts(out, mappedSlots);
+            ModelSnapshot.writeInts(out, mappedHashes);
+            ModelSnapshot.writeInts(out, mappedOffsets);
+        } else {
+            ModelSnapshot.writeInts(out, slots);
+            ModelSnapshot.writeInts(out, hashes);
+            ModelSnapshot.writeInts(out, offsets);
+        }
+        if (frequencies != null) {
+            ModelSnapshot.writeInts(out, frequencies);
+        } else if (levels != null) {
+            int[] decoded = new int[size];
+            for (int id = 0; id < size; id++) {
+                decoded[id] = frequency(id);
+            }
+            ModelSnapshot.writeInts(out, decoded);
+        } else {
+            ModelSnapshot.writeInts(out, mappedFrequencies);
+        }
+        if (isMapped()) {
+            ModelSnapshot.writeBytes(out, mappedArena);
+        } else {
+            ModelSnapshot.writeBytes(out, arena);
+        }
+        out.writeBoolean(wide);
+        if (filter != null) {
+            filter.write(out);
+        } else {
+            // a withoutFilter() view
+            int[] all = new int[size];
+            for (int id = 0; id < size; id++) {
+                all[id] = hashAt(id);
+            }
+            new BloomFilter(all, size).write(out);
+        }
+    }
+
+    // table written by write(), read with bulk copies only
+    static FrequencyTable read(ByteBuffer in) throws IOException {
+        int[] slots = ModelSnapshot.readInts(in);
+        int[] hashes = ModelSnapshot.readInts(in);
+        int[] offsets = ModelSnapshot.readInts(in);
+        int[] frequencies = ModelSnapshot.readInts(in);
+        byte[] arena = ModelSnapshot.readBytes(in);
+        boolean wide = in.get() != 0;
+        if (Integer.bitCount(slots.length) != 1 || offsets.length != hashes.length + 1 || frequencies.length != hashes.length
+                || offsets[hashes.length] != arena.length) {
+            throw new IOException("corrupt frequency table");
+        }
+        FrequencyTable table = new FrequencyTable(slots, hashes, offsets, frequencies, arena, wide);
+        table.filter = BloomFilter.read(in);
+        return table;
+    }
+
+    // table written by write(), left in the mapped snapshot: nothing is copied
+    static FrequencyTable map(ModelSnapshot.Mapping in) throws IOException {
+        IntBuffer slots = in.ints();
+        IntBuffer hashes = in.ints();
+        IntBuffer offsets = in.ints();
+        IntBuffer frequencies = in.ints();
+        ByteBuffer arena = in.bytes();
+        boolean wide = in.get() != 0;
+        if (Integer.bitCount(slots.capacity()) != 1 || offsets.capacity() != hashes.capacity() + 1
+                || frequencies.capacity() != hashes.capacity() || offsets.get(hashes.capacity()) != arena.capacity()) {
+            throw new IOException("corrupt frequency table");
+        }
+        FrequencyTable table = new FrequencyTable(slots, hashes, offsets, frequencies, arena, wide);
+        table.filter = BloomFilter.map(in);
+        return table;
+    }
+
+    static long arrayBytes(long length, int elementSize) {
+        return (16 + length * elementSize + 7) & ~7L;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean keyEquals(int id, String word) {
+        int offset = offset(id);
+        int length = offset(id + 1) - offset;
+        if (wide) {
+            if (length != 2 * word.length()) {
+                return false;
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (((key(offset + 2 * i) & 0xFF) << 8 | (key(offset + 2 * i + 1) & 0xFF)) != word.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((key(offset + i) & 0xFF) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean keyEquals(int id, char[] chars, int charOffset, int length) {
+        int offset = offset(id);
+        if (wide) {
+            if (2 * length != offset(id + 1) - offset) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (((key(offset + 2 * i) & 0xFF) << 8 | (key(offset + 2 * i + 1) & 0xFF)) != chars[charOffset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (length != offset(id + 1) - offset) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((key(offset + i) & 0xFF) != chars[charOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean keyEquals(int id, byte[] bytes, int byteOffset, int length) {
+        int offset = offset(id);
+        if (length != offset(id + 1) - offset) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key(offset + i) != bytes[byteOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // add count to the word's frequency [or raise it to count if keepMax], inserting it if it is new; bytes[offset,
+    // offset + length) is the key in this table's encoding
+    private void add(byte[] bytes, int offset, int length, int hash, int count, boolean keepMax) {
+        int slot = mix(hash) & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && keyEquals(id, bytes, offset, length)) {
+                frequencies[id] = keepMax ? Math.max(frequencies[id], count) : frequencies[id] + count;
+                return;
+            }
+        }
+
+        if (size == hashes.length) {
+            growEntries();
+        }
+        int start = offsets[size];
+        if (start + length > arena.length) {
+            byte[] grown = new byte[Math.max(arena.length * 2, start + length)];
+            System.arraycopy(arena, 0, grown, 0, start);
+            arena = grown;
+        }
+        System.arraycopy(bytes, offset, arena, start, length);
+        offsets[size + 1] = start + length;
+        hashes[size] = hash;
+        frequencies[size] = count;
+        slots[slot] = ++size;
+
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    private void growEntries() {
+        int capacity = hashes.length * 2;
+        int[] grownHashes = new int[capacity];
+        int[] grownOffsets = new int[capacity + 1];
+        int[] grownFrequencies = new int[capacity];
+        System.arraycopy(hashes, 0, grownHashes, 0, size);
+        System.arraycopy(offsets, 0, grownOffsets, 0, size + 1);
+        System.arraycopy(frequencies, 0, grownFrequencies, 0, size);
+        hashes = grownHashes;
+        offsets = grownOffsets;
+        frequencies = grownFrequencies;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    // re-encode every key as 2-byte code units
+    private void widen() {
+        byte[] widened = new byte[Math.max(16, arena.length * 2)];
+        for (int i = 0; i < offsets[size]; i++) {
+            widened[2 * i + 1] = arena[i];
+        }
+        for (int id = 0; id <= size; id++) {
+            offsets[id] *= 2;
+        }
+        arena = widened;
+        wide = true;
+    }
+
+    // drop the unused tails of the entry arrays and the arena
+    private void trim() {
+        int[] trimmedHashes = new int[size];
+        int[] trimmedOffsets = new int[size + 1];
+        int[] trimmedFrequencies = new int[size];
+        byte[] trimmedArena = new byte[offsets[size]];
+        System.arraycopy(hashes, 0, trimmedHashes, 0, size);
+        System.arraycopy(offsets, 0, trimmedOffsets, 0, size + 1);
+        System.arraycopy(frequencies, 0, trimmedFrequencies, 0, size);
+        System.arraycopy(arena, 0, trimmedArena, 0, trimmedArena.length);
+        hashes = trimmedHashes;
+        offsets = trimmedOffsets;
+        frequencies = trimmedFrequencies;
+        arena = trimmedArena;
+    }
+
+    /**
+     * Accumulates word counts; {@link #build()} hands out the finished table and the builder can not be used afterwards
+     */
+    public static class Builder {
+
+        private FrequencyTable table;
+        private byte[] scratch = new byte[64];
+
+        public Builder() {
+            this(INITIAL_CAPACITY);
+        }
+
+        public Builder(int expectedSize) {
+            table = new FrequencyTable(expectedSize);
+        }
+
+        /**
+         * Add count to word [a word beyond Latin-1 makes the table wide]
+         */
+        public Builder add(String word, int count) {
+            table.add(encode(word), 0, encodedLength(word.length()), word.hashCode(), count, false);
+            return this;
+        }
+
+        /**
+         * Raise word's frequency to frequency if it is lower
+         */
+        public Builder max(String word, int frequency) {
+            table.add(encode(word), 0, encodedLength(word.length()), word.hashCode(), frequency, true);
+            return this;
+        }
+
+        /**
+         * Add count to the word in chars[offset, offset + length)
+         */
+        public Builder add(char[] chars, int offset, int length, int count) {
+            table.add(encode(CharBuffer.wrap(chars, offset, length)), 0, encodedLength(length), hash(chars, offset, length), count, false);
+            return this;
+        }
+
+        // word in the table's encoding in scratch, widening the table first if word needs it
+        private byte[] encode(CharSequence word) {
+            int length = word.length();
+            if (!table.wide) {
+                for (int i = 0; i < length; i++) {
+                    if (word.charAt(i) > 0xFF) {
+                        table.widen();
+                        break;
+                    }
+                }
+            }
+            ensureScratch(encodedLength(length));
+            for (int i = 0; i < length; i++) {
+                char ch = word.charAt(i);
+                if (table.wide) {
+                    scratch[2 * i] = (byte) (ch >> 8);
+                    scratch[2 * i + 1] = (byte) ch;
+                } else {
+                    scratch[i] = (byte) ch;
+                }
+            }
+            return scratch;
+        }
+
+        private int encodedLength(int length) {
+            return table.wide ? 2 * length : length;
+        }
+
+        private void ensureScratch(int length) {
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+        }
+
+        /**
+         * Add count to the word stored as Latin-1 bytes in bytes[offset, offset + length)
+         */
+        public Builder add(byte[] bytes, int offset, int length, int count) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + (bytes[i] & 0xFF);
+            }
+            if (table.wide) {
+                ensureScratch(2 * length);
+                for (int i = 0; i < length; i++) {
+                    scratch[2 * i] = 0;
+                    scratch[2 * i + 1] = bytes[offset + i];
+                }
+                table.add(scratch, 0, 2 * length, hash, count, false);
+            } else {
+                table.add(bytes, offset, length, hash, count, false);
+            }
+            return this;
+        }
+
+        // add all frequencies of other
+        public Builder addAll(FrequencyTable other) {
+            for (int id = 0; id < other.size; id++) {
+                add(other, id);
+            }
+            return this;
+        }
+
+        // add the frequency of entry id of other
+        private void add(FrequencyTable other, int id) {
+            if (other.wide && !table.wide) {
+                table.widen();
+            }
+            int offset = other.offset(id);
+            int length = other.offset(id + 1) - offset;
+            int step = (table.wide && !other.wide ? 2 : 1);
+            ensureScratch(step * length);
+            for (int i = 0; i < length; i++) {
+                scratch[step * i] = 0;
+                scratch[step * i + step - 1] = other.key(offset + i);
+            }
+            table.add(scratch, 0, step * length, other.hashAt(id), other.frequency(id), false);
+        }
+
+        // add delta to every word seen so far [e.g. the +1 smoothing seed]
+        public Builder addToAll(int delta) {
+            for (int id = 0; id < table.size; id++) {
+                table.frequencies[id] += delta;
+            }
+            return this;
+        }
+
+        public int size() {
+            return table.size;
+        }
+
+        public FrequencyTable build() {
+            FrequencyTable built = table;
+            table = null;
+            built.trim();
+            built.filter = new BloomFilter(built.hashes, built.size);
+            return built;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One {@link SpellCorrector} per language, all loaded up front and picked per call by language tag.
+ * <p>
+ * Every language has its own dictionary, counted from its own corpus with words of any alphabet [see
+ * {@link CorpusLoader}], and so its own {@link Alphabet}: German edits try the umlauts and sharp s, French the
+ * accented vowels and ligatures, and none of them tries letters only the others have. Switching language is a map
+ * lookup - nothing is loaded or rebuilt per call. Tags are case-insensitive.
+ * <pre>
+ * Languages languages = Languages.builder().language("en", "big.txt").language("de", "de.txt").build();
+ * languages.correct("de", "strase");
+ * </pre>
+ * <pre>
+ * java spellingcorrector.Languages en=big.txt de=de.txt &lt; queries.txt     [one "language word" a line]
+ * </pre>
+ */
+public final class Languages {
+
+    private final Map<String, SpellCorrector> correctors;
+
+    private Languages(Map<String, SpellCorrector> correctors) {
+        this.correctors = Collections.unmodifiableMap(correctors);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: Languages <language>=<wordsFile> ... < queries");
+            System.exit(1);
+        }
+        Builder builder = builder();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("expected language=wordsFile: " + arg);
+            }
+            builder.language(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        long start = System.nanoTime();
+        Languages languages = builder.build();
+        for (String language : languages.languages()) {
+            WordModel model = languages.corrector(language).model();
+            System.out.println(language + ": {'words': " + model.size() + ", 'letters': " + model.alphabet().size()
+                    + ", 'alphabet': '" + model.alphabet() + "'}");
+        }
+        System.out.println("loaded in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] query = line.trim().split("\\s+");
+            if (query.length == 2) {
+                System.out.println(query[0] + " " + query[1] + " -> " + languages.correct(query[0], query[1]));
+            }
+        }
+    }
+
+    // the language tags [lowercase]
+    public Set<String> languages() {
+        return correctors.keySet();
+    }
+
+    // corrector of language, null if there is none
+    public SpellCorrector corrector(String language) {
+        return correctors.get(language.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Correction of word with the dictionary of language [see {@link SpellCorrector#correct(String)}]
+     */
+    public String correct(String language, String word) {
+        return require(language).correct(word);
+    }
+
+    /**
+     * The k known words of language closest to word [see {@link SpellCorrector#suggest}]
+     */
+    public List<Suggestion> suggest(String language, String word, int k, int maxDistance) {
+        return require(language).suggest(word, k, maxDistance);
+    }
+
+    private SpellCorrector require(String language) {
+        SpellCorrector corrector = corrector(language);
+        if (corrector == null) {
+            throw new IllegalArgumentException("no dictionary for language " + language + ", have " + languages());
+        }
+        return corrector;
+    }
+
+    public static class Builder {
+
+        private final Map<String, String> wordsFiles = new LinkedHashMap<String, String>();
+        private final Map<String, SpellCorrector> correctors = new LinkedHashMap<String, SpellCorrector>();
+        private Engine engine = Engine.EDITS;
+
+        private Builder() {
+        }
+
+        // text corpus of language [UTF-8]
+        public Builder language(String language, String wordsFile) {
+            correctors.remove(language.toLowerCase(Locale.ROOT));
+            wordsFiles.put(language.toLowerCase(Locale.ROOT), wordsFile);
+            return this;
+        }
+
+        // already built corrector for language
+        public Builder language(String language, SpellCorrector corrector) {
+            wordsFiles.remove(language.toLowerCase(Locale.ROOT));
+            correctors.put(language.toLowerCase(Locale.ROOT), corrector);
+            return this;
+        }
+
+        // engine of the correctors built from corpora [default EDITS]
+        public Builder engine(Engine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public Languages build() throws IOException {
+            if (wordsFiles.isEmpty() && correctors.isEmpty()) {
+                throw new IllegalStateException("no languages");
+            }
+            Map<String, SpellCorrector> all = new LinkedHashMap<String, SpellCorrector>(correctors);
+            for (Map.Entry<String, String> entry : wordsFiles.entrySet()) {
+                all.put(entry.getKey(), SpellCorrector.builder().wordsFile(entry.getValue()).engine(engine).unicode(true).build());
+            }
+            return new Languages(all);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package spellingcorrector;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values with bounded relative error, for percentiles under concurrent recording.
+ * The histogram has no unit: values read back in the unit they were recorded in [latencies in microseconds from
+ * {@link #recordMicrosSince}, nanoseconds in {@link CorrectorMetrics}, or counts such as words per batch].
+ * <p>
+ * Buckets are log-linear: values below 32 have a bucket each, above that every power of two is split into 16 equal
+ * buckets, so a percentile is off by less than 1/16 [6.25%] whatever the scale, in under a thousand counters.
+ * Percentiles are read from live counters, so a read concurrent with recording sees a consistent-enough mix.
+ * <p>
+ * With more than one stripe every stripe has its own bucket counters, picked by thread id, so threads recording the
+ * same value at once mostly increment different cache lines; percentiles add the stripes up.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    // stripes is rounded up to a power of two
+    public LatencyHistogram(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        int rounded = Integer.highestOneBit(stripes - 1) << 1;
+        this.stripeMask = Math.max(1, rounded) - 1;
+        this.counts = new AtomicLongArray((stripeMask + 1) * BUCKETS);
+    }
+
+    // negative values are recorded as 0
+    public void record(long value) {
+        value = Math.max(0, value);
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKETS + bucket(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    // microseconds since startNanos [a System.nanoTime()]
+    public void recordMicrosSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Smallest recorded value [to bucket precision, rounded up] that at least fraction of all values do not exceed;
+     * 0 if nothing was recorded
+     */
+    public long percentile(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long n = counts.get(i);
+            snapshot[i % BUCKETS] += n;
+            total += n;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+    }
+
+    /**
+     * count, mean and p50/p90/p99/p999 in the recorded unit
+     */
+    @Override
+    public String toString() {
+        return "{'count': " + count() + ", 'mean': " + String.format("%.1f", mean()) + ", 'p50': " + percentile(0.5)
+                + ", 'p90': " + percentile(0.9) + ", 'p99': " + percentile(0.99) + ", 'p999': " + percentile(0.999) + "}";
+    }
+
+    // values [0, 32) have a bucket each; after that shift s > 0 holds [16 << s, 32 << s) in 16 buckets
+    static int bucket(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // largest value in bucket
+    static long upperBound(int bucket) {
+        int shift = Math.max(0, bucket / SUB_BUCKETS - 1);
+        long first = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return first + (1L << shift) - 1;
+    }
+}
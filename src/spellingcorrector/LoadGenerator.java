@@ -0,0 +1,155 @@
+package spellingcorrector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load against a {@link CorrectionServer}: clients threads each send a request, wait for the answer and
+ * send the next, for seconds; then prints throughput, status counts, client-side latency percentiles and the server's
+ * /metrics. Requests are single words from the {@link TestSets}, or with batch > 1 that many words
+ * a request to /correct/batch.
+ * <pre>
+ * java spellingcorrector.LoadGenerator http://localhost:8080 64 30 [batch]
+ * java spellingcorrector.LoadGenerator local big.txt 64 30 [batch]   [starts a server on a free port first]
+ * </pre>
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "http://localhost:8080";
+        int next = 1;
+        CorrectionServer server = null;
+        if (target.equals("local")) {
+            String wordsFile = args.length > next ? args[next++] : SpellCorrect.WORDS_FILE;
+            server = CorrectionServer.builder(SpellCorrector.builder().wordsFile(wordsFile).build()).port(0).build();
+            server.start();
+            target = "http://localhost:" + server.port();
+        }
+        int clients = args.length > next ? Integer.parseInt(args[next++]) : 64;
+        int seconds = args.length > next ? Integer.parseInt(args[next++]) : 30;
+        int batch = args.length > next ? Integer.parseInt(args[next]) : 1;
+
+        List<String> words = TestSets.words();
+        Load load = new Load(target, words, batch, System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            threads[i] = new Thread(load.client(i), "load-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long requests = load.latency.count();
+        System.out.println("clients: " + clients + ", batch: " + batch + ", seconds: " + String.format("%.1f", elapsed));
+        System.out.println("requests/s: " + String.format("%.0f", requests / elapsed) + ", words/s: "
+                + String.format("%.0f", requests * batch / elapsed));
+        System.out.println("ok: " + load.ok.sum() + ", rejected (503): " + load.rejected.sum() + ", failed: " + load.failed.sum());
+        System.out.println("client latency: " + load.latency);
+        System.out.println("server /metrics:");
+        System.out.print(new String(Load.read(new URL(target + "/metrics").openStream()), StandardCharsets.UTF_8));
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static final class Load {
+
+        final String target;
+        final List<String> words;
+        final int batch;
+        final long deadline;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        Load(String target, List<String> words, int batch, long deadline) {
+            this.target = target;
+            this.words = words;
+            this.batch = batch;
+            this.deadline = deadline;
+        }
+
+        Runnable client(final int number) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    int next = number * 7919;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            int status = batch > 1 ? postBatch(next) : getWord(words.get(next % words.size()));
+                            if (status == 200) {
+                                ok.increment();
+                            } else if (status == 503) {
+                                rejected.increment();
+                            } else {
+                                failed.increment();
+                            }
+                        } catch (IOException e) {
+                            failed.increment();
+                        }
+                        latency.recordMicrosSince(start);
+                        next += batch;
+                    }
+                }
+            };
+        }
+
+        int getWord(String word) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(target + "/correct?word="
+                    + URLEncoder.encode(word, "UTF-8")).openConnection();
+            return finish(connection);
+        }
+
+        int postBatch(int from) throws IOException {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < batch; i++) {
+                body.append(words.get((from + i) % words.size())).append('\n');
+            }
+            HttpURLConnection connection = (HttpURLConnection) new URL(target + "/correct/batch").openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            OutputStream out = connection.getOutputStream();
+            out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            out.close();
+            return finish(connection);
+        }
+
+        // read the whole response so the connection is kept alive for the next request
+        static int finish(HttpURLConnection connection) throws IOException {
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                read(in);
+            }
+            return status;
+        }
+
+        static byte[] read(InputStream in) throws IOException {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, read);
+                }
+                return bytes.toByteArray();
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
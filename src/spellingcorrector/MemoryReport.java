@@ -0,0 +1,52 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the heap footprint of the word counts held as HashMap<String, Integer> [the original nWords] and as a
+ * {@link FrequencyTable}.
+ * <p>
+ * The HashMap figure is computed from the object layout of a 64-bit JVM with compressed oops and compact strings:
+ * HashMap.Node 32 bytes, String 24 bytes + its Latin-1 byte[], Integer 16 bytes [values -128..127 are shared],
+ * plus the bucket array. The FrequencyTable figure is the exact size of its arrays.
+ * <pre>
+ * java spellingcorrector.MemoryReport big.txt
+ * </pre>
+ */
+public class MemoryReport {
+
+    public static void main(String[] args) throws IOException {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+
+        FrequencyTable table = new CorpusLoader().countWords(wordsFile);
+        HashMap<String, Integer> nWords = new HashMap<String, Integer>();
+        for (int id = 0; id < table.size(); id++) {
+            nWords.put(table.word(id), table.frequency(id));
+        }
+
+        long mapBytes = hashMapBytes(nWords);
+        long tableBytes = table.memoryBytes();
+        System.out.println("words:          " + table.size());
+        System.out.println("HashMap:        " + mapBytes + " bytes (" + perEntry(mapBytes, table.size()) + " bytes/word)");
+        System.out.println("FrequencyTable: " + tableBytes + " bytes (" + perEntry(tableBytes, table.size()) + " bytes/word)");
+        System.out.println("saving:         " + (int) (100.0 * (mapBytes - tableBytes) / mapBytes) + "%");
+    }
+
+    static long hashMapBytes(Map<String, Integer> nWords) {
+        int buckets = Integer.highestOneBit(Math.max(1, (int) (nWords.size() / 0.75f)) * 2 - 1);
+        long bytes = 48 + FrequencyTable.arrayBytes(buckets, 4);
+        for (Map.Entry<String, Integer> entry : nWords.entrySet()) {
+            bytes += 32 + 24 + FrequencyTable.arrayBytes(entry.getKey().length(), 1);
+            if (entry.getValue() < -128 || entry.getValue() > 127) {
+                bytes += 16;
+            }
+        }
+        return bytes;
+    }
+
+    private static String perEntry(long bytes, int size) {
+        return String.format("%.1f", size == 0 ? 0.0 : (double) bytes / size);
+    }
+}
@@ -0,0 +1,91 @@
+package spellingcorrector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of correct() with {@link CorrectorMetrics} off and on, from threads threads at once, then the metrics dump.
+ * The words are those of running text: the misspellings of the {@link TestSets}, each followed by
+ * knownPerMisspelling correctly spelled words. Rounds alternate off and on over one shared model, so JIT warm-up and
+ * drift affect both.
+ * <pre>
+ * java spellingcorrector.MetricsReport big.txt [threads] [seconds per round] [knownPerMisspelling] [engine]
+ * </pre>
+ */
+public class MetricsReport {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2 * Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int knownPerMisspelling = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+        Engine engine = args.length > 4 ? Engine.valueOf(args[4].toUpperCase()) : Engine.EDITS;
+
+        WordModel model = WordModel.load(wordsFile, engine);
+        CorrectorMetrics metrics = new CorrectorMetrics();
+        SpellCorrector plain = SpellCorrector.builder().model(model).build();
+        SpellCorrector metered = SpellCorrector.builder().model(model).metrics(metrics).build();
+        List<String> words = words(knownPerMisspelling);
+
+        System.out.println("threads: " + threads + ", words: " + words.size() + ", engine: " + engine);
+        double plainTotal = 0;
+        double meteredTotal = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            double off = wordsPerSecond(plain, words, threads, seconds);
+            double on = wordsPerSecond(metered, words, threads, seconds);
+            plainTotal += off;
+            meteredTotal += on;
+            System.out.println("round " + round + ": off " + String.format("%.0f", off) + " words/s, on "
+                    + String.format("%.0f", on) + " words/s");
+        }
+        System.out.println("overhead: " + String.format("%.1f", 100 * (1 - meteredTotal / plainTotal)) + "%");
+        System.out.print(metrics);
+    }
+
+    private static List<String> words(int knownPerMisspelling) {
+        List<String> known = TestSets.correctWords();
+        List<String> words = new ArrayList<String>();
+        int next = 0;
+        for (String misspelling : TestSets.misspellings()) {
+            words.add(misspelling);
+            for (int i = 0; i < knownPerMisspelling; i++) {
+                words.add(known.get(next++ % known.size()));
+            }
+        }
+        return words;
+    }
+
+    private static double wordsPerSecond(final SpellCorrector corrector, final List<String> words, int threads, int seconds)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final LongAdder corrected = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int first = t * 7919;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int next = first;
+                    long count = 0;
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < 256; i++) {
+                            corrector.correct(words.get(next++ % words.size()));
+                        }
+                        count += 256;
+                    }
+                    corrected.add(count);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return corrected.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,180 @@
+package spellingcorrector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent correction requests into batches for {@link SpellCorrector#correctAll}.
+ * <p>
+ * Requests wait in a bounded queue; one dispatcher thread takes the first waiting request, keeps taking more until
+ * maxBatchWords words are collected or maxDelay has passed since the first, and hands the batch to the corrector's pool,
+ * which corrects it with one correctAll() call [duplicates corrected once, known words answered right away] and
+ * completes every request of the batch. Up to maxBatches batches are corrected at once; while all are busy requests
+ * keep queueing, so batches grow with the load. When the queue is full a request is rejected at once instead of
+ * waiting, so callers see overload as an error they can retry rather than as growing latency.
+ */
+public class MicroBatcher {
+
+    private final SpellCorrector corrector;
+    private final ArrayBlockingQueue<Request> queue;
+    private final int maxBatchWords;
+    private final long maxDelayNanos;
+    private final Semaphore idleBatches;
+    private final Thread dispatcher;
+    private final LatencyHistogram batchWords = new LatencyHistogram();
+    private volatile boolean running = true;
+
+    /**
+     * As many batches at once as the corrector's pool has threads
+     */
+    public MicroBatcher(SpellCorrector corrector, int queueCapacity, int maxBatchWords, long maxDelay, TimeUnit unit) {
+        this(corrector, corrector.pool().getParallelism(), queueCapacity, maxBatchWords, maxDelay, unit);
+    }
+
+    public MicroBatcher(SpellCorrector corrector, int maxBatches, int queueCapacity, int maxBatchWords, long maxDelay, TimeUnit unit) {
+        if (maxBatches < 1 || queueCapacity < 1 || maxBatchWords < 1) {
+            throw new IllegalArgumentException("maxBatches, queueCapacity and maxBatchWords must be positive: " + maxBatches
+                    + ", " + queueCapacity + ", " + maxBatchWords);
+        }
+        this.corrector = corrector;
+        this.queue = new ArrayBlockingQueue<Request>(queueCapacity);
+        this.maxBatchWords = maxBatchWords;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.idleBatches = new Semaphore(maxBatches);
+        this.dispatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, "correction-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Corrections of words, in the same order, once their batch is done; throws RejectedExecutionException if the
+     * queue is full
+     */
+    public CompletableFuture<List<String>> submit(List<String> words) {
+        if (!running) {
+            throw new RejectedExecutionException("batcher is closed");
+        }
+        Request request = new Request(words);
+        if (!queue.offer(request)) {
+            throw new RejectedExecutionException("correction queue is full");
+        }
+        if (!running && queue.remove(request)) {
+            // close() drained the queue before this request was in it
+            throw new RejectedExecutionException("batcher is closed");
+        }
+        return request.result;
+    }
+
+    // requests waiting for a batch
+    public int queued() {
+        return queue.size();
+    }
+
+    // words per batch
+    public LatencyHistogram batchWords() {
+        return batchWords;
+    }
+
+    /**
+     * Stop taking requests; waiting ones are failed
+     */
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new RejectedExecutionException("batcher is closed"));
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            ArrayList<Request> batch = new ArrayList<Request>();
+            ArrayList<String> words = new ArrayList<String>();
+            try {
+                idleBatches.acquire();
+                Request first = queue.take();
+                batch.add(first);
+                words.addAll(first.words);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (words.size() < maxBatchWords) {
+                    // whatever is already waiting, then up to the deadline for more
+                    Request next = queue.poll();
+                    if (next == null) {
+                        long wait = deadline - System.nanoTime();
+                        next = (wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null);
+                        if (next == null) {
+                            break;
+                        }
+                    }
+                    batch.add(next);
+                    words.addAll(next.words);
+                }
+            } catch (InterruptedException e) {
+                // close(): fail what was taken
+                fail(batch, new RejectedExecutionException("batcher is closed"));
+                return;
+            }
+
+            final List<Request> taken = batch;
+            final List<String> takenWords = words;
+            try {
+                corrector.pool().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            correct(taken, takenWords);
+                        } finally {
+                            idleBatches.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                idleBatches.release();
+                fail(taken, e);
+            }
+        }
+    }
+
+    // correct the words of batch and complete its requests
+    private void correct(List<Request> batch, List<String> words) {
+        try {
+            List<String> corrections = corrector.correctAll(words);
+            batchWords.record(words.size());
+            int from = 0;
+            for (Request request : batch) {
+                int to = from + request.words.size();
+                request.result.complete(new ArrayList<String>(corrections.subList(from, to)));
+                from = to;
+            }
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<Request> batch, Exception e) {
+        for (Request request : batch) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private static final class Request {
+
+        final List<String> words;
+        final CompletableFuture<List<String>> result = new CompletableFuture<List<String>>();
+
+        Request(List<String> words) {
+            this.words = words;
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package spellingcorrector;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a built {@link WordModel}, so a process can start serving without re-reading the text corpus.
+ * <p>
+ * The snapshot holds the model's arrays as they are in memory [word table with its slot layout, frequency bounds,
+ * alphabet, word pair counts if any and the index of the engine: the packed {@link SymmetricDeleteIndex} or the
+ * DAWG], so loading is a memory map, a checksum and a handful of bulk array copies - no per-word parsing, hashing or
+ * inserting.
+ * <p>
+ * Layout [big-endian]: a {@value #HEADER_SIZE} byte header - magic, format version, engine, max distance, loader [1 if
+ * words of any alphabet were counted, see {@link CorpusLoader}], length and modification time of the corpus it was
+ * built from, payload length, CRC32 of the payload - then the payload.
+ * Arrays are stored as their length followed by their elements.
+ * <p>
+ * {@link #map} does not copy the word table, the frequency bounds or the symmetric delete index at all: they are looked
+ * up in the mapped file, and processes mapping one file share a single copy in the page cache. Word pair counts and
+ * the DAWG are still copied to the heap, so only a model with neither has a heap footprint and GC work that do not
+ * grow with the vocabulary.
+ * <pre>
+ * java spellingcorrector.ModelSnapshot big.txt big.snapshot TRIE 2 true
+ * </pre>
+ */
+public final class ModelSnapshot {
+
+    static final int MAGIC = 0x5350454C;
+    // bump on any change of the payload layout
+    static final int VERSION = 4;
+    static final int HEADER_SIZE = 52;
+
+    private ModelSnapshot() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ModelSnapshot <wordsFile> <snapshotFile> [engine] [maxDistance] [bigrams] [unicode]");
+            System.exit(1);
+        }
+        Engine engine = args.length > 2 ? Engine.valueOf(args[2].toUpperCase()) : Engine.EDITS;
+        int maxDistance = args.length > 3 ? Integer.parseInt(args[3]) : WordModel.DEFAULT_MAX_DISTANCE;
+        boolean bigrams = args.length > 4 && Boolean.parseBoolean(args[4]);
+        boolean unicode = args.length > 5 && Boolean.parseBoolean(args[5]);
+
+        long start = System.nanoTime();
+        WordModel model = WordModel.load(args[0], engine, maxDistance, bigrams, 1, unicode);
+        long built = System.nanoTime();
+        write(model, new File(args[1]), new File(args[0]), unicode);
+        long written = System.nanoTime();
+        read(new File(args[1]));
+        long read = System.nanoTime();
+
+        System.out.println("{'words': " + model.size() + ", 'bytes': " + new File(args[1]).length()
+                + ", 'build ms': " + (built - start) / 1000000 + ", 'write ms': " + (written - built) / 1000000
+                + ", 'load ms': " + (read - written) / 1000000 + "}");
+    }
+
+    public static WordModel load(String snapshotFile, String wordsFile, Engine engine, int maxDistance) throws IOException {
+        return load(snapshotFile, wordsFile, engine, maxDistance, false);
+    }
+
+    /**
+     * Model from snapshotFile if it is valid and was built from wordsFile as it is now [with word pairs, if bigrams];
+     * otherwise built from wordsFile and written to snapshotFile for the next start. A snapshot built for another engine
+     * or max distance only reuses the word table and pair counts.
+     */
+    public static WordModel load(String snapshotFile, String wordsFile, Engine engine, int maxDistance, boolean bigrams) throws IOException {
+        return load(snapshotFile, wordsFile, engine, maxDistance, bigrams, false);
+    }
+
+    /**
+     * Words of any alphabet if unicode [see {@link CorpusLoader}]; a snapshot counted by the other loader is stale
+     */
+    public static WordModel load(String snapshotFile, String wordsFile, Engine engine, int maxDistance, boolean bigrams,
+                                 boolean unicode) throws IOException {
+        return load(snapshotFile, wordsFile, engine, maxDistance, bigrams, unicode, false);
+    }
+
+    /**
+     * Word table and frequency bounds left in the snapshot file if mapped [see {@link #map}; a rebuilt model is written
+     * first, then mapped]
+     */
+    public static WordModel load(String snapshotFile, String wordsFile, Engine engine, int maxDistance, boolean bigrams,
+                                 boolean unicode, boolean mapped) throws IOException {
+        File snapshot = new File(snapshotFile);
+        File source = new File(wordsFile);
+        if (snapshot.isFile()) {
+            try {
+                Header header = readHeader(snapshot);
+                if (header.isBuiltFrom(source, unicode)) {
+                    WordModel model = (mapped ? map(snapshot) : read(snapshot));
+                    if (bigrams && model.bigrams() == null) {
+                        throw new IOException("snapshot has no word pairs");
+                    }
+                    return model.engine() == engine && model.maxDistance() == maxDistance ? model
+                            : new WordModel(model.table(), model.bigrams(), engine, maxDistance);
+                }
+            } catch (IOException e) {
+                // unreadable, corrupt or from another format version: rebuild below
+            }
+        }
+
+        WordModel model = WordModel.load(wordsFile, engine, maxDistance, bigrams, 1, unicode);
+        write(model, snapshot, source, unicode);
+        return mapped ? map(snapshot) : model;
+    }
+
+    /**
+     * Write model to snapshotFile [replacing it], recording sourceFile's length and modification time for staleness checks
+     * [its words counted by the a-z loader]
+     */
+    public static void write(WordModel model, File snapshotFile, File sourceFile) throws IOException {
+        write(model, snapshotFile, sourceFile, false);
+    }
+
+    /**
+     * Also recording whether model's words were counted by a unicode loader [see {@link #load}]
+     */
+    public static void write(WordModel model, File snapshotFile, File sourceFile, boolean unicode) throws IOException {
+        File temporary = new File(snapshotFile.getPath() + ".tmp");
+        RandomAccessFile file = new RandomAccessFile(temporary, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            channel.position(HEADER_SIZE);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            model.table().write(out);
+            model.bounds().write(out);
+            model.alphabet().write(out);
+            out.writeBoolean(model.bigrams() != null);
+            if (model.bigrams() != null) {
+                model.bigrams().write(out);
+            }
+            if (model.deleteIndex() != null) {
+                model.deleteIndex().write(out);
+            }
+            if (model.dawg() != null) {
+                model.dawg().write(out);
+            }
+            out.flush();
+
+            long payloadLength = channel.position() - HEADER_SIZE;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(model.engine().ordinal()).putInt(model.maxDistance())
+                    .putInt(unicode ? 1 : 0).putLong(sourceFile.length()).putLong(sourceFile.lastModified())
+                    .putLong(payloadLength).putLong(checked.getChecksum().getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } finally {
+            file.close();
+        }
+        if (!temporary.renameTo(snapshotFile) && !(snapshotFile.delete() && temporary.renameTo(snapshotFile))) {
+            throw new IOException("can not replace " + snapshotFile);
+        }
+    }
+
+    /**
+     * Model stored in snapshotFile, whatever corpus it was built from; IOException if the file is not a valid snapshot of
+     * this format version
+     */
+    public static WordModel read(File snapshotFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            Header header = Header.read(channel);
+            if (channel.size() != HEADER_SIZE + header.payloadLength) {
+                throw new IOException("truncated snapshot " + snapshotFile);
+            }
+            if (header.payloadLength > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large to read, map it instead: " + snapshotFile);
+            }
+            MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, header.payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != header.checksum) {
+                throw new IOException("checksum mismatch in snapshot " + snapshotFile);
+            }
+
+            try {
+                FrequencyTable nWords = FrequencyTable.read(payload);
+                FrequencyBounds bounds = FrequencyBounds.read(payload);
+                Alphabet alphabet = Alphabet.read(payload);
+                BigramTable bigrams = payload.get() != 0 ? BigramTable.read(payload) : null;
+                SymmetricDeleteIndex deleteIndex = header.engine == Engine.SYMMETRIC_DELETE
+                        ? SymmetricDeleteIndex.read(payload, nWords) : null;
+                Dawg dawg = header.engine == Engine.TRIE ? Dawg.read(payload) : null;
+                if (dawg != null && dawg.maxDistance() != header.maxDistance) {
+                    throw new IOException("corrupt snapshot " + snapshotFile);
+                }
+                return new WordModel(nWords, bounds, alphabet, bigrams, header.engine, deleteIndex, dawg);
+            } catch (RuntimeException e) {
+                throw new IOException("corrupt snapshot " + snapshotFile, e);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Model stored in snapshotFile with its word table, frequency bounds [filters included] and symmetric delete index
+     * left in the file: mapped read-only and looked up in place, never copied to the heap. The alphabet, word pair counts
+     * and the DAWG are copied as by {@link #read}. Arrays are mapped one by one, so the payload may exceed 2 GB.
+     * Replacing the file [see {@link #write}] does not affect models already mapping it.
+     */
+    public static WordModel map(File snapshotFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            Header header = Header.read(channel);
+            if (channel.size() != HEADER_SIZE + header.payloadLength) {
+                throw new IOException("truncated snapshot " + snapshotFile);
+            }
+            CRC32 crc = new CRC32();
+            for (long position = HEADER_SIZE; position < channel.size(); position += 1 << 30) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1 << 30, channel.size() - position)));
+            }
+            if (crc.getValue() != header.checksum) {
+                throw new IOException("checksum mismatch in snapshot " + snapshotFile);
+            }
+
+            try {
+                Mapping in = new Mapping(channel, HEADER_SIZE, channel.size());
+                FrequencyTable nWords = FrequencyTable.map(in);
+                FrequencyBounds bounds = FrequencyBounds.map(in);
+                ByteBuffer alphabetWindow = in.window();
+                Alphabet alphabet = Alphabet.read(alphabetWindow);
+                in.skip(alphabetWindow.position());
+                BigramTable bigrams = null;
+                if (in.get() != 0) {
+                    ByteBuffer window = in.window();
+                    bigrams = BigramTable.read(window);
+                    in.skip(window.position());
+                }
+                SymmetricDeleteIndex deleteIndex = header.engine == Engine.SYMMETRIC_DELETE
+                        ? SymmetricDeleteIndex.map(in, nWords) : null;
+                Dawg dawg = null;
+                if (header.engine == Engine.TRIE) {
+                    ByteBuffer window = in.window();
+                    dawg = Dawg.read(window);
+                    in.skip(window.position());
+                    if (dawg.maxDistance() != header.maxDistance) {
+                        throw new IOException("corrupt snapshot " + snapshotFile);
+                    }
+                }
+                return new WordModel(nWords, bounds, alphabet, bigrams, header.engine, deleteIndex, dawg);
+            } catch (RuntimeException e) {
+                throw new IOException("corrupt snapshot " + snapshotFile, e);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private static Header readHeader(File snapshotFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+        try {
+            return Header.read(file.getChannel());
+        } finally {
+            file.close();
+        }
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 14);
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int from = 0; from < values.length; from += ints.capacity()) {
+            int count = Math.min(ints.capacity(), values.length - from);
+            ints.clear();
+            ints.put(values, from, count);
+            out.write(buffer.array(), 0, count * 4);
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 14);
+        LongBuffer longs = buffer.asLongBuffer();
+        for (int from = 0; from < values.length; from += longs.capacity()) {
+            int count = Math.min(longs.capacity(), values.length - from);
+            longs.clear();
+            longs.put(values, from, count);
+            out.write(buffer.array(), 0, count * 8);
+        }
+    }
+
+    static void writeChars(DataOutputStream out, char[] values) throws IOException {
+        out.writeInt(values.length);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 14);
+        CharBuffer chars = buffer.asCharBuffer();
+        for (int from = 0; from < values.length; from += chars.capacity()) {
+            int count = Math.min(chars.capacity(), values.length - from);
+            chars.clear();
+            chars.put(values, from, count);
+            out.write(buffer.array(), 0, count * 2);
+        }
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    // the elements of a mapped view [big-endian already, written as they are]
+    static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+        out.writeInt(values.capacity());
+        for (int i = 0; i < values.capacity(); i++) {
+            out.writeInt(values.get(i));
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, LongBuffer values) throws IOException {
+        out.writeInt(values.capacity());
+        for (int i = 0; i < values.capacity(); i++) {
+            out.writeLong(values.get(i));
+        }
+    }
+
+    static void writeBytes(DataOutputStream out, ByteBuffer values) throws IOException {
+        out.writeInt(values.capacity());
+        byte[] buffer = new byte[1 << 14];
+        for (int from = 0; from < values.capacity(); from += buffer.length) {
+            int count = Math.min(buffer.length, values.capacity() - from);
+            for (int i = 0; i < count; i++) {
+                buffer[i] = values.get(from + i);
+            }
+            out.write(buffer, 0, count);
+        }
+    }
+
+    static int[] readInts(ByteBuffer in) throws IOException {
+        int[] values = new int[readLength(in, 4)];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * 4);
+        return values;
+    }
+
+    static long[] readLongs(ByteBuffer in) throws IOException {
+        long[] values = new long[readLength(in, 8)];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + values.length * 8);
+        return values;
+    }
+
+    static char[] readChars(ByteBuffer in) throws IOException {
+        char[] values = new char[readLength(in, 2)];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + values.length * 2);
+        return values;
+    }
+
+    static byte[] readBytes(ByteBuffer in) throws IOException {
+        byte[] values = new byte[readLength(in, 1)];
+        in.get(values);
+        return values;
+    }
+
+    // array length that fits in what is left of in
+    private static int readLength(ByteBuffer in, int elementSize) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || (long) length * elementSize > in.remaining()) {
+            throw new IOException("corrupt array length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * A payload being mapped array by array: each array a read-only view of its own mapping [so no array, rather than
+     * no payload, may exceed 2 GB], the lengths and flags in between read with plain file reads
+     */
+    static final class Mapping {
+
+        private final FileChannel channel;
+        private final long end;
+        private final ByteBuffer scalar = ByteBuffer.allocate(8);
+        private long position;
+
+        Mapping(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        byte get() throws IOException {
+            return read(1).get();
+        }
+
+        int getInt() throws IOException {
+            return read(4).getInt();
+        }
+
+        IntBuffer ints() throws IOException {
+            return map(length(4) * 4L).asIntBuffer();
+        }
+
+        LongBuffer longs() throws IOException {
+            return map(length(8) * 8L).asLongBuffer();
+        }
+
+        ByteBuffer bytes() throws IOException {
+            return map(length(1));
+        }
+
+        // the rest of the payload [at most 2 GB of it] for a reader that copies; skip() what it read
+        ByteBuffer window() throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(end - position, Integer.MAX_VALUE));
+        }
+
+        void skip(int bytes) {
+            position += bytes;
+        }
+
+        private ByteBuffer read(int bytes) throws IOException {
+            if (end - position < bytes) {
+                throw new IOException("truncated payload");
+            }
+            scalar.clear();
+            scalar.limit(bytes);
+            while (scalar.hasRemaining()) {
+                if (channel.read(scalar, position + scalar.position()) < 0) {
+                    throw new IOException("truncated payload");
+                }
+            }
+            position += bytes;
+            scalar.flip();
+            return scalar;
+        }
+
+        // array length that fits in what is left of the payload
+        private int length(int elementSize) throws IOException {
+            int length = getInt();
+            if (length < 0 || (long) length * elementSize > end - position) {
+                throw new IOException("corrupt array length " + length);
+            }
+            return length;
+        }
+
+        private ByteBuffer map(long bytes) throws IOException {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            position += bytes;
+            return mapped;
+        }
+    }
+
+    private static final class Header {
+
+        Engine engine;
+        int maxDistance;
+        boolean unicode;
+        long sourceLength;
+        long sourceLastModified;
+        long payloadLength;
+        long checksum;
+
+        static Header read(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // read the whole header
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("not a snapshot: too short");
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a snapshot: bad magic");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("snapshot version " + version + ", expected " + VERSION);
+            }
+            int engine = buffer.getInt();
+            if (engine < 0 || engine >= Engine.values().length) {
+                throw new IOException("unknown engine " + engine);
+            }
+
+            Header header = new Header();
+            header.engine = Engine.values()[engine];
+            header.maxDistance = buffer.getInt();
+            int loader = buffer.getInt();
+            if (loader != 0 && loader != 1) {
+                throw new IOException("unknown loader " + loader);
+            }
+            header.unicode = (loader == 1);
+            header.sourceLength = buffer.getLong();
+            header.sourceLastModified = buffer.getLong();
+            header.payloadLength = buffer.getLong();
+            header.checksum = buffer.getLong();
+            if (header.payloadLength < 0) {
+                throw new IOException("bad payload length " + header.payloadLength);
+            }
+            return header;
+        }
+
+        boolean isBuiltFrom(File source, boolean unicode) {
+            return source.isFile() && source.length() == sourceLength && source.lastModified() == sourceLastModified
+                    && this.unicode == unicode;
+        }
+    }
+}
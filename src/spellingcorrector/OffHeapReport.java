@@ -0,0 +1,91 @@
+package spellingcorrector;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heap and full GC cost of a model read into the heap versus the same model mapped from its snapshot [see
+ * {@link ModelSnapshot#map}]: heap in use after a full GC with the model live, the mean pause of a full GC, and the
+ * time to correct the misspellings of the {@link TestSets} with each [whose corrections must agree]. The snapshot is
+ * written from wordsFile first if it is missing or stale.
+ * <pre>
+ * java spellingcorrector.OffHeapReport big.txt big.snapshot [engine]
+ * </pre>
+ */
+public class OffHeapReport {
+
+    private static final int COLLECTIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: OffHeapReport <wordsFile> <snapshotFile> [engine]");
+            System.exit(1);
+        }
+        Engine engine = args.length > 2 ? Engine.valueOf(args[2].toUpperCase()) : Engine.EDITS;
+        ModelSnapshot.load(args[1], args[0], engine, WordModel.DEFAULT_MAX_DISTANCE, false);
+        List<String> misspellings = TestSets.misspellings();
+
+        List<String> expected = report("heap", args[1], false, misspellings);
+        List<String> actual = report("mapped", args[1], true, misspellings);
+        System.out.println("same corrections: " + expected.equals(actual));
+    }
+
+    // corrections of misspellings by the model in snapshotFile, which is only live during this call
+    private static List<String> report(String name, String snapshotFile, boolean mapped, List<String> misspellings)
+            throws IOException {
+        long empty = heapAfterGc();
+        WordModel model = (mapped ? ModelSnapshot.map(new File(snapshotFile)) : ModelSnapshot.read(new File(snapshotFile)));
+        long heapBytes = heapAfterGc() - empty;
+        double fullGcMillis = fullGcMillis();
+        long start = System.nanoTime();
+        List<String> corrections = correct(model, misspellings);
+        long corrected = System.nanoTime() - start;
+        System.out.println(name + ": {'words': " + model.size() + ", 'table bytes': " + model.table().memoryBytes()
+                + ", 'heap bytes': " + heapBytes + ", 'full gc ms': " + String.format("%.1f", fullGcMillis)
+                + ", 'us/word': " + corrected / 1000 / misspellings.size() + "}");
+        return corrections;
+    }
+
+    private static List<String> correct(WordModel model, List<String> words) {
+        List<String> corrections = new ArrayList<String>();
+        for (String word : words) {
+            corrections.add(model.correct(word));
+        }
+        return corrections;
+    }
+
+    // heap in use once full GCs stop freeing anything
+    private static long heapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+            long now = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    // mean time the collectors report for a full GC with what is live now
+    private static double fullGcMillis() {
+        long before = collectionMillis();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+        }
+        return (double) (collectionMillis() - before) / COLLECTIONS;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,487 @@
+package spellingcorrector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Type-ahead over the words of a {@link FrequencyTable}: the most frequent completions of a prefix, or of the prefixes
+ * within an edit distance of a possibly misspelled one.
+ * <p>
+ * Words are sorted, so the completions of a prefix are a range of them. A trie over the sorted words splits a range by
+ * next letter while it holds more than cacheSize words, and each such node keeps the ids of its cacheSize most frequent
+ * completions, so an exact lookup is a walk down the prefix and a copy of at most cacheSize ids. Smaller ranges are
+ * leaves of the trie [buckets] and are scanned. Nodes are numbered breadth first and stored in flat arrays [children of
+ * node n are firstChild[n] .. firstChild[n + 1] - 1, sorted by letter].
+ * <p>
+ * The distance of a completion is the smallest distance between any of its prefixes and the query [unrestricted
+ * Damerau-Levenshtein], and completions are ranked by distance, then frequency. Within distance 1 they are the
+ * completions of the query and of its edit1 strings, each an exact lookup. Larger distances walk the trie with one row of
+ * the edit distance table per level, like {@link Dawg}, and go on through the words of a bucket letter by letter;
+ * branches that cannot hold a completion better than the worst one kept are not walked.
+ */
+public final class PrefixIndex {
+
+    public static final int DEFAULT_CACHE_SIZE = 10;
+    // node fields: children are nodes FIRST_CHILD .. CHILD_END - 1; completions are sorted[RANGE_START .. RANGE_END - 1];
+    // the most frequent ones are at cache[CACHE_START ..], -1 for a bucket
+    private static final int FIRST_CHILD = 0;
+    private static final int CHILD_END = 1;
+    private static final int RANGE_START = 2;
+    private static final int RANGE_END = 3;
+    private static final int MAX_FREQUENCY = 4;
+    private static final int CACHE_START = 5;
+    private static final int NODE_SIZE = 6;
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final ThreadLocal<Walk> WALKS = new ThreadLocal<Walk>() {
+        @Override
+        protected Walk initialValue() {
+            return new Walk();
+        }
+    };
+
+    private final FrequencyTable nWords;
+    private final int cacheSize;
+    // word ids in word order
+    private final int[] sorted;
+    // NODE_SIZE ints per node, read together [see the field offsets]
+    private final int[] nodes;
+    // letter of the edge into node n; siblings are adjacent, so finding a child reads one short run
+    private final char[] letter;
+    // id, frequency pairs [cacheSize of them per node, most frequent first]
+    private final int[] cache;
+    private final int maxWordLength;
+
+    public PrefixIndex(FrequencyTable nWords) {
+        this(nWords, DEFAULT_CACHE_SIZE);
+    }
+
+    public PrefixIndex(FrequencyTable nWords, int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+        }
+        this.nWords = nWords;
+        this.cacheSize = cacheSize;
+
+        String[] words = new String[nWords.size()];
+        for (int id = 0; id < words.length; id++) {
+            words[id] = nWords.word(id);
+        }
+        Arrays.sort(words);
+        sorted = new int[words.length];
+        int longest = 0;
+        for (int i = 0; i < words.length; i++) {
+            sorted[i] = nWords.id(words[i]);
+            longest = Math.max(longest, words[i].length());
+        }
+        maxWordLength = longest;
+
+        // breadth first; a node is {range start, range end, depth, letter}
+        ArrayList<int[]> nodes = new ArrayList<int[]>();
+        nodes.add(new int[]{0, words.length, 0, 0});
+        // first child of node n, then of node n + 1 ...: children of n are firstChildren[n] .. firstChildren[n + 1] - 1
+        ArrayList<Integer> firstChildren = new ArrayList<Integer>();
+        int cached = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            int[] node = nodes.get(n);
+            firstChildren.add(nodes.size());
+            if (node[1] - node[0] <= cacheSize) {
+                continue;
+            }
+            cached++;
+            int depth = node[2];
+            int start = node[0];
+            // the word equal to the prefix sorts first and belongs to no child
+            if (words[start].length() == depth) {
+                start++;
+            }
+            while (start < node[1]) {
+                char ch = words[start].charAt(depth);
+                int end = start + 1;
+                while (end < node[1] && words[end].charAt(depth) == ch) {
+                    end++;
+                }
+                nodes.add(new int[]{start, end, depth + 1, ch});
+                start = end;
+            }
+        }
+        firstChildren.add(nodes.size());
+
+        this.nodes = new int[nodes.size() * NODE_SIZE];
+        letter = new char[nodes.size()];
+        cache = new int[cached * cacheSize * 2];
+        TopK top = TopK.get();
+        int next = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            int[] node = nodes.get(n);
+            int base = n * NODE_SIZE;
+            this.nodes[base + FIRST_CHILD] = firstChildren.get(n);
+            this.nodes[base + CHILD_END] = firstChildren.get(n + 1);
+            this.nodes[base + RANGE_START] = node[0];
+            this.nodes[base + RANGE_END] = node[1];
+            letter[n] = (char) node[3];
+            int max = 0;
+            for (int i = node[0]; i < node[1]; i++) {
+                max = Math.max(max, nWords.frequency(sorted[i]));
+            }
+            this.nodes[base + MAX_FREQUENCY] = max;
+            if (node[1] - node[0] > cacheSize) {
+                top.reset(cacheSize, nWords.size());
+                for (int i = node[0]; i < node[1]; i++) {
+                    top.offer(nWords.frequency(sorted[i]), sorted[i], 0);
+                }
+                this.nodes[base + CACHE_START] = next;
+                int[] ids = new int[cacheSize];
+                top.drainIds(ids, 0);
+                for (int id : ids) {
+                    cache[next++] = id;
+                    cache[next++] = nWords.frequency(id);
+                }
+            } else {
+                this.nodes[base + CACHE_START] = -1;
+            }
+        }
+    }
+
+    public int nodeCount() {
+        return letter.length;
+    }
+
+    /**
+     * Bytes held by the sorted word ids and the node and cache arrays
+     */
+    public long memoryBytes() {
+        return FrequencyTable.arrayBytes(sorted.length, 4) + FrequencyTable.arrayBytes(nodes.length, 4)
+                + FrequencyTable.arrayBytes(letter.length, 2) + FrequencyTable.arrayBytes(cache.length, 4);
+    }
+
+    /**
+     * The k most frequent known words starting with prefix, most frequent first
+     */
+    public List<Suggestion> complete(String prefix, int k) {
+        return complete(prefix, k, 0);
+    }
+
+    /**
+     * The k best known words starting with a prefix within maxDistance of prefix: closest first, most frequent first
+     * among equally close ones [distance is that of the closest prefix]
+     */
+    public List<Suggestion> complete(String prefix, int k, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        }
+        TopK top = TopK.get();
+        top.reset(k, nWords.size());
+        String query = prefix.toLowerCase();
+        Walk walk = WALKS.get();
+        walk.start(query, maxWordLength, maxDistance);
+        if (maxDistance == 0) {
+            completeFrom(0, 0, walk.input, walk.inputLength, 0, top);
+        } else if (maxDistance == 1) {
+            completeWithin1(walk, top);
+        } else {
+            if (query.length() <= maxDistance) {
+                offerCompletions(0, query.length(), top);
+            }
+            visitChildren(walk, 0, 0, top);
+        }
+        return top.drain(nWords);
+    }
+
+    // completions of prefix[0, length), at distance, from node [the node of prefix[0, depth) or the bucket holding it]
+    private void completeFrom(int node, int depth, char[] prefix, int length, int distance, TopK top) {
+        while (depth < length && field(node, CACHE_START) >= 0) {
+            node = child(node, prefix[depth]);
+            if (node < 0) {
+                return;
+            }
+            depth++;
+        }
+        if (depth == length) {
+            offerCompletions(node, distance, top);
+            return;
+        }
+
+        // a bucket: keep the words that go on with the rest of the prefix
+        for (int i = field(node, RANGE_START); i < field(node, RANGE_END); i++) {
+            int id = sorted[i];
+            if (nWords.length(id) >= length && startsWith(id, prefix, depth, length)) {
+                top.offer(TopK.rank(distance, nWords.frequency(id)), id, distance);
+            }
+        }
+    }
+
+    /**
+     * Completions within distance 1: those of the query, then those of every edit1 of it [the same edits as
+     * {@link EditSearch}; inserting at the end is left out, its completions are the query's]. An edit at i starts from
+     * the node of query[0, i), and changed or inserted letters are taken from its children, not tried blindly.
+     */
+    private void completeWithin1(Walk walk, TopK top) {
+        char[] query = walk.input;
+        int length = walk.inputLength;
+        char[] edit = walk.edit;
+        int[] prefixNodes = walk.prefixNodes;
+        int[] prefixDepths = walk.prefixDepths;
+
+        // node [or bucket] of each prefix of the query, -1 past the last one in the trie
+        int node = 0;
+        int depth = 0;
+        for (int i = 0; i <= length; i++) {
+            prefixNodes[i] = node;
+            prefixDepths[i] = depth;
+            if (i < length && node >= 0 && field(node, CACHE_START) >= 0) {
+                node = child(node, query[i]);
+                depth = i + 1;
+            }
+        }
+        completeFrom(prefixNodes[0], prefixDepths[0], query, length, 0, top);
+
+        for (int i = 0; i < length; i++) {
+            node = prefixNodes[i];
+            if (node < 0 || !top.accepts(TopK.rank(1, field(node, MAX_FREQUENCY)))) {
+                continue;
+            }
+            // deletion
+            if (i == 0 || query[i] != query[i - 1]) {
+                System.arraycopy(query, 0, edit, 0, i);
+                System.arraycopy(query, i + 1, edit, i, length - i - 1);
+                completeFrom(node, prefixDepths[i], edit, length - 1, 1, top);
+            }
+            // transposition
+            System.arraycopy(query, 0, edit, 0, length);
+            if (i < length - 1 && query[i] != query[i + 1]) {
+                edit[i] = query[i + 1];
+                edit[i + 1] = query[i];
+                completeFrom(node, prefixDepths[i], edit, length, 1, top);
+                edit[i + 1] = query[i + 1];
+            }
+            // alteration
+            completeEdited(node, prefixDepths[i], i, edit, length, query[i], top);
+            // insertion
+            System.arraycopy(query, i, edit, i + 1, length - i);
+            completeEdited(node, prefixDepths[i], i, edit, length + 1, query[i], top);
+        }
+    }
+
+    // completions of edit[0, length) for every letter but skip at i, from the node [or bucket] of edit[0, i)
+    private void completeEdited(int node, int depth, int i, char[] edit, int length, char skip, TopK top) {
+        if (field(node, CACHE_START) >= 0) {
+            for (int child = field(node, FIRST_CHILD); child < field(node, CHILD_END); child++) {
+                if (letter[child] != skip && top.accepts(TopK.rank(1, field(child, MAX_FREQUENCY)))) {
+                    edit[i] = letter[child];
+                    completeFrom(child, i + 1, edit, length, 1, top);
+                }
+            }
+        } else {
+            // a bucket: the letter at i is taken from each word
+            for (int r = field(node, RANGE_START); r < field(node, RANGE_END); r++) {
+                int id = sorted[r];
+                if (nWords.length(id) >= length && nWords.charAt(id, i) != skip) {
+                    edit[i] = nWords.charAt(id, i);
+                    if (startsWith(id, edit, depth, length)) {
+                        top.offer(TopK.rank(1, nWords.frequency(id)), id, 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private int field(int node, int field) {
+        return nodes[node * NODE_SIZE + field];
+    }
+
+    // child of node along letter ch, -1 if there is none
+    private int child(int node, char ch) {
+        for (int child = field(node, FIRST_CHILD); child < field(node, CHILD_END); child++) {
+            if (letter[child] == ch) {
+                return child;
+            }
+            if (letter[child] > ch) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    // word id and prefix agree on prefix[from, length)
+    private boolean startsWith(int id, char[] prefix, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (nWords.charAt(id, i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // every completion of node, at distance
+    private void offerCompletions(int node, int distance, TopK top) {
+        if (field(node, CACHE_START) >= 0 && top.k() <= cacheSize) {
+            int start = field(node, CACHE_START);
+            for (int i = start; i < start + 2 * cacheSize; i += 2) {
+                double score = TopK.rank(distance, cache[i + 1]);
+                if (!top.accepts(score)) {
+                    // the rest are less frequent
+                    return;
+                }
+                top.offer(score, cache[i], distance);
+            }
+            return;
+        }
+        for (int i = field(node, RANGE_START); i < field(node, RANGE_END); i++) {
+            top.offer(TopK.rank(distance, nWords.frequency(sorted[i])), sorted[i], distance);
+        }
+    }
+
+    // extend the path of length depth ending at node by each of its children
+    private void visitChildren(Walk walk, int node, int depth, TopK top) {
+        int i = depth + 1;
+        for (int child = field(node, FIRST_CHILD); child < field(node, CHILD_END); child++) {
+            char ch = letter[child];
+            int rowMin = walk.extend(i, ch);
+            int distance = walk.distance(i);
+            boolean matched = distance <= walk.maxDistance && top.accepts(TopK.rank(distance, field(child, MAX_FREQUENCY)));
+            if (matched) {
+                offerCompletions(child, distance, top);
+            }
+
+            // a completion offered here only improves through a closer prefix below
+            int limit = matched ? distance : walk.maxDistance + 1;
+            if (rowMin < limit && top.accepts(TopK.rank(rowMin, field(child, MAX_FREQUENCY)))) {
+                int previousLastRow = walk.setLastRow(ch, i);
+                if (field(child, CACHE_START) >= 0) {
+                    visitChildren(walk, child, i, top);
+                } else {
+                    visitBucket(walk, child, i, limit, top);
+                }
+                walk.setLastRow(ch, previousLastRow);
+            }
+        }
+    }
+
+    // go on letter by letter through each word of bucket node, whose path has length depth
+    private void visitBucket(Walk walk, int node, int depth, int limit, TopK top) {
+        for (int r = field(node, RANGE_START); r < field(node, RANGE_END); r++) {
+            int id = sorted[r];
+            int length = nWords.length(id);
+            int best = INFINITY;
+            int i = depth;
+            while (i < length) {
+                char ch = nWords.charAt(id, i);
+                int rowMin = walk.extend(i + 1, ch);
+                best = Math.min(best, walk.distance(i + 1));
+                // no longer prefix can be closer
+                if (rowMin >= Math.min(best, limit)) {
+                    break;
+                }
+                walk.saved[i] = walk.setLastRow(ch, i + 1);
+                i++;
+            }
+            while (i > depth) {
+                i--;
+                walk.setLastRow(nWords.charAt(id, i), walk.saved[i]);
+            }
+            if (best < limit) {
+                top.offer(TopK.rank(best, nWords.frequency(id)), id, best);
+            }
+        }
+    }
+
+    /**
+     * Per-thread walk state: distance table rows along the current trie path, as in {@link Dawg}
+     */
+    private static final class Walk {
+
+        char[] input = new char[32];
+        char[] edit = new char[33];
+        int[] prefixNodes = new int[33];
+        int[] prefixDepths = new int[33];
+        int inputLength;
+        int maxDistance;
+        int[][] rows = new int[0][];
+        int[] lastRow = new int[26];
+        // letters of the current path
+        char[] path = new char[32];
+        int[] saved = new int[32];
+
+        void start(String query, int maxWordLength, int maxDistance) {
+            this.maxDistance = maxDistance;
+            inputLength = query.length();
+            if (input.length < inputLength) {
+                input = new char[inputLength * 2];
+                edit = new char[inputLength * 2 + 1];
+                prefixNodes = new int[inputLength * 2 + 1];
+                prefixDepths = new int[inputLength * 2 + 1];
+            }
+            query.getChars(0, inputLength, input, 0);
+            if (maxDistance < 2) {
+                return;
+            }
+            if (rows.length < maxWordLength + 2 || rows[0].length < inputLength + 2) {
+                rows = new int[maxWordLength + 2][Math.max(inputLength + 2, rows.length > 0 ? rows[0].length : 0)];
+                saved = new int[maxWordLength + 1];
+                path = new char[maxWordLength + 1];
+            }
+            // row 0 is the border, row 1 is the empty path
+            Arrays.fill(rows[0], INFINITY);
+            rows[1][0] = INFINITY;
+            for (int j = 0; j <= inputLength; j++) {
+                rows[1][j + 1] = j;
+            }
+            Arrays.fill(lastRow, 0);
+        }
+
+        // row of the path of length i [rows[i + 1]] ending in letter, from the row of its parent; returns its minimum
+        int extend(int i, char letter) {
+            int[] previous = rows[i];
+            int[] row = rows[i + 1];
+            row[0] = INFINITY;
+            row[1] = i;
+            int rowMin = i;
+            int lastMatchColumn = 0;
+            path[i - 1] = letter;
+            for (int j = 1; j <= inputLength; j++) {
+                char inputLetter = input[j - 1];
+                int i1 = lastRow(inputLetter, i);
+                int j1 = lastMatchColumn;
+                int cost = 1;
+                if (inputLetter == letter) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                int distance = Math.min(Math.min(previous[j] + cost, row[j] + 1),
+                        Math.min(previous[j + 1] + 1, rows[i1][j1] + (i - i1 - 1) + 1 + (j - j1 - 1)));
+                row[j + 1] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            return rowMin;
+        }
+
+        // distance between the path of length i and the whole query
+        int distance(int i) {
+            return rows[i + 1][inputLength + 1];
+        }
+
+        // last row above row i on the current path whose letter is letter [a-z from the index, others by scanning the path]
+        int lastRow(char letter, int i) {
+            if (letter >= 'a' && letter <= 'z') {
+                return lastRow[letter - 'a'];
+            }
+            for (int row = i - 1; row > 0; row--) {
+                if (path[row - 1] == letter) {
+                    return row;
+                }
+            }
+            return 0;
+        }
+
+        int setLastRow(char letter, int row) {
+            if (letter < 'a' || letter > 'z') {
+                return 0;
+            }
+            int previous = lastRow[letter - 'a'];
+            lastRow[letter - 'a'] = row;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package spellingcorrector;
+
+/**
+ * Work done by the searches of one thread: candidates generated [edited strings, trie edges, delete variants] and
+ * dictionary probes [lookups of a candidate in the word table or index]; of the edit search's probes, those the table's
+ * {@link BloomFilter} ruled out and those it let through that were no word after all. Plain longs, only ever written
+ * by their own thread; {@link CorrectorMetrics} reads them before and after a call.
+ */
+final class SearchCounters {
+
+    private static final ThreadLocal<SearchCounters> COUNTERS = new ThreadLocal<SearchCounters>() {
+        @Override
+        protected SearchCounters initialValue() {
+            return new SearchCounters();
+        }
+    };
+
+    long candidates;
+    long probes;
+    long filtered;
+    long falsePositives;
+
+    // counters of the current thread
+    static SearchCounters get() {
+        return COUNTERS.get();
+    }
+}
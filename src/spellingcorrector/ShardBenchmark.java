@@ -0,0 +1,162 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of {@link ShardedCorrector} by shard count, each shard a {@link ShardServer} in its own JVM on the loopback
+ * address, next to {@link WordModel#correctWithCandidateSets} in-process [the same search over one table].
+ * <p>
+ * For every shard count the shard processes are started from this JVM's class path, every correction of the
+ * {@link TestSets} is checked against the in-process one [a different word of the same frequency is a tie, not a
+ * mismatch], then threads threads correct the test words for seconds seconds. Reported per count: words/s, probes and
+ * shard requests per word, latency and the largest shard's table.
+ * <pre>
+ * java spellingcorrector.ShardBenchmark big.txt [shard counts, e.g. 1,2,4] [seconds] [threads]
+ * </pre>
+ */
+public class ShardBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String wordsFile = args.length > 0 ? args[0] : SpellCorrect.WORDS_FILE;
+        String[] counts = (args.length > 1 ? args[1] : "1,2,4").split(",");
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 2 * Runtime.getRuntime().availableProcessors();
+
+        final WordModel model = WordModel.load(wordsFile, Engine.EDITS);
+        List<String> words = TestSets.words();
+        System.out.println("words: " + words.size() + ", threads: " + threads + ", dictionary: " + model.size()
+                + " words, " + model.table().memoryBytes() + " bytes");
+
+        Corrector local = new Corrector() {
+            @Override
+            public String correct(String word) {
+                return model.correctWithCandidateSets(word);
+            }
+        };
+        LatencyHistogram latency = new LatencyHistogram();
+        double wordsPerSecond = wordsPerSecond(local, words, threads, seconds, latency);
+        System.out.println("in-process: {'words/s': " + String.format("%.0f", wordsPerSecond) + ", 'latency': " + latency + "}");
+
+        for (String count : counts) {
+            int shards = Integer.parseInt(count.trim());
+            List<Process> processes = new ArrayList<Process>();
+            try {
+                List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+                for (int shard = 0; shard < shards; shard++) {
+                    Process process = start(wordsFile, shard, shards);
+                    processes.add(process);
+                    addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port(process)));
+                }
+                try (final ShardedCorrector sharded = ShardedCorrector.connect(addresses)) {
+                    int ties = 0;
+                    int mismatches = 0;
+                    for (String word : words) {
+                        String expected = model.correctWithCandidateSets(word);
+                        String actual = sharded.correct(word);
+                        if (!expected.equals(actual)) {
+                            if (model.table().get(expected) == model.table().get(actual)) {
+                                ties++;
+                            } else {
+                                mismatches++;
+                            }
+                        }
+                    }
+                    long probes = sharded.probes();
+                    long batches = sharded.batches();
+                    long largest = 0;
+                    for (int shard = 0; shard < shards; shard++) {
+                        largest = Math.max(largest, sharded.shardBytes(shard));
+                    }
+
+                    Corrector remote = new Corrector() {
+                        @Override
+                        public String correct(String word) throws IOException {
+                            return sharded.correct(word);
+                        }
+                    };
+                    latency.reset();
+                    wordsPerSecond = wordsPerSecond(remote, words, threads, seconds, latency);
+                    System.out.println(shards + " shards: {'words/s': " + String.format("%.0f", wordsPerSecond)
+                            + ", 'probes/word': " + String.format("%.0f", (double) probes / words.size())
+                            + ", 'requests/word': " + String.format("%.2f", (double) batches / words.size())
+                            + ", 'largest shard bytes': " + largest + ", 'mismatches': " + mismatches + ", 'ties': " + ties
+                            + ", 'latency': " + latency + "}");
+                }
+            } finally {
+                for (Process process : processes) {
+                    process.destroy();
+                    process.waitFor();
+                }
+            }
+        }
+    }
+
+    // shard of shards in a JVM of its own, on a free port
+    private static Process start(String wordsFile, int shard, int shards) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ShardServer.class.getName(),
+                wordsFile, String.valueOf(shard), String.valueOf(shards), "0")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    // port a started shard listens on, once it is ready
+    private static int port(Process process) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith("listening on port ")) {
+                return Integer.parseInt(line.substring("listening on port ".length()).trim());
+            }
+        }
+        throw new IOException("shard exited before listening");
+    }
+
+    private interface Corrector {
+        String correct(String word) throws IOException;
+    }
+
+    private static double wordsPerSecond(final Corrector corrector, final List<String> words, int threads, int seconds,
+                                         final LatencyHistogram latency) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final LongAdder corrected = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int first = t * 7919;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int next = first;
+                    long count = 0;
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            long wordStart = System.nanoTime();
+                            corrector.correct(words.get(next++ % words.size()));
+                            latency.recordMicrosSince(wordStart);
+                            count++;
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    corrected.add(count);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return corrected.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,201 @@
+package spellingcorrector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One shard of a dictionary split by word hash [see {@link ShardedCorrector#shardOf}]: the words it owns and their
+ * frequencies, answering batches of probes over a socket.
+ * <p>
+ * Protocol [big-endian, see {@link java.io.DataOutputStream}]: on connect the shard sends {@link #MAGIC}, its index, the
+ * shard count, its word count, the bytes its table holds and the letters of its words. Then, per request, the client
+ * sends the probe count, whether the probes are 2-byte chars [else Latin-1 bytes] and each probe as a short length and
+ * its chars; the shard answers with the number of known probes and, for each, its index in the request and its
+ * frequency. Unknown probes cost no reply bytes. A connection serves one request at a time; each has its own thread.
+ * <p>
+ * Run as a process, a shard counts only the words it owns and listens on the loopback address unless given one to bind
+ * [unicode, then the address].
+ * <pre>
+ * java spellingcorrector.ShardServer big.txt 0 4 7001 false 0.0.0.0    [prints "listening on port 7001" once it is ready]
+ * </pre>
+ */
+public class ShardServer implements Closeable {
+
+    static final int MAGIC = 0x53484152;
+
+    private final FrequencyTable nWords;
+    private final int shard;
+    private final int shards;
+    private final String letters;
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+
+    /**
+     * Serve the words of nWords owned by shard [of shards] on port of the loopback address [0 picks a free port]
+     */
+    public ShardServer(FrequencyTable nWords, int shard, int shards, int port) throws IOException {
+        this(nWords, shard, shards, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Serve the words of nWords owned by shard [of shards] on port of address [null binds all local addresses]
+     */
+    public ShardServer(FrequencyTable nWords, int shard, int shards, InetAddress address, int port) throws IOException {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("shard " + shard + " not in [0, " + shards + ")");
+        }
+        this.nWords = share(nWords, shard, shards);
+        this.shard = shard;
+        this.shards = shards;
+        this.letters = Alphabet.of(this.nWords).toString();
+        this.socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(address, port));
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-" + shard);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // not a daemon: a shard process lives until it is closed or killed
+        new Thread(this::accept, "shard-" + shard + "-accept").start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: ShardServer <wordsFile> <shard> <shards> [port] [unicode] [bindAddress]");
+            System.exit(1);
+        }
+        int shard = Integer.parseInt(args[1]);
+        int shards = Integer.parseInt(args[2]);
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        boolean unicode = args.length > 4 && Boolean.parseBoolean(args[4]);
+        InetAddress address = args.length > 5 ? InetAddress.getByName(args[5]) : InetAddress.getLoopbackAddress();
+        // only the owned words are counted
+        FrequencyTable nWords = new CorpusLoader(ForkJoinPool.commonPool(), CorpusLoader.DEFAULT_CHUNK_SIZE, unicode)
+                .countWords(args[0], shard, shards);
+        ShardServer server = new ShardServer(nWords, shard, shards, address, port);
+        System.out.println("shard " + server.shard + " of " + server.shards + ": " + server.nWords.size() + " words, "
+                + server.nWords.memoryBytes() + " bytes");
+        System.out.println("listening on port " + server.port());
+        System.out.flush();
+    }
+
+    // the words of nWords that shard owns [nWords itself if it owns them all]
+    static FrequencyTable share(FrequencyTable nWords, int shard, int shards) {
+        int kept = 0;
+        while (kept < nWords.size() && ShardedCorrector.shardOf(nWords.word(kept), shards) == shard) {
+            kept++;
+        }
+        if (kept == nWords.size()) {
+            return nWords;
+        }
+        FrequencyTable.Builder owned = new FrequencyTable.Builder(nWords.size() / shards + 1);
+        for (int id = 0; id < nWords.size(); id++) {
+            String word = nWords.word(id);
+            if (ShardedCorrector.shardOf(word, shards) == shard) {
+                owned.add(word, nWords.frequency(id));
+            }
+        }
+        return owned.build();
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    // the words this shard owns
+    public FrequencyTable table() {
+        return nWords;
+    }
+
+    /**
+     * Stop accepting and drop open connections
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                final Socket client = socket.accept();
+                connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream(), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(shard);
+            out.writeInt(shards);
+            out.writeInt(nWords.size());
+            out.writeLong(nWords.memoryBytes());
+            out.writeUTF(letters);
+            out.flush();
+
+            char[] probe = new char[64];
+            int[] hits = new int[64];
+            while (true) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                boolean wide = in.readBoolean();
+                int hitCount = 0;
+                for (int i = 0; i < count; i++) {
+                    int length = in.readUnsignedShort();
+                    if (length > probe.length) {
+                        probe = new char[Math.max(length, probe.length * 2)];
+                    }
+                    for (int c = 0; c < length; c++) {
+                        probe[c] = wide ? in.readChar() : (char) in.readUnsignedByte();
+                    }
+                    int frequency = nWords.get(probe, 0, length);
+                    if (frequency != 0) {
+                        if (hitCount * 2 == hits.length) {
+                            hits = Arrays.copyOf(hits, hits.length * 2);
+                        }
+                        hits[hitCount * 2] = i;
+                        hits[hitCount * 2 + 1] = frequency;
+                        hitCount++;
+                    }
+                }
+                out.writeInt(hitCount);
+                for (int i = 0; i < hitCount * 2; i++) {
+                    out.writeInt(hits[i]);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
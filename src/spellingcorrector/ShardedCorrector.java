@@ -0,0 +1,388 @@
+package spellingcorrector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spell corrector over a dictionary split by word hash into {@link ShardServer}s, which may live in other JVMs.
+ * <p>
+ * Norvig's search, scattered and gathered: this coordinator generates the candidate strings itself - the word, then its
+ * edit1 strings, then the edit1 strings of those [as {@link WordModel#correctWithCandidateSets}] - splits each candidate
+ * set by owning shard and sends every shard its probes as one batch, to all shards before reading any answer. The best
+ * candidate is picked from the answers by the rule of {@link WordModel#returnBestCandidate}: most frequent, the first in
+ * candidate set order among equally frequent ones. So a word costs one round trip if it is known, two if it has a known
+ * edit1 and three otherwise, whatever the number of shards.
+ * <p>
+ * Edits use the letters of all shards, in char order, so corrections do not depend on the shard count. Thread-safe:
+ * connections are pooled per shard, and a call holds one connection to each shard it probes.
+ * <pre>
+ * ShardedCorrector corrector = ShardedCorrector.connect(Arrays.asList(new InetSocketAddress("localhost", 7001), ...));
+ * corrector.correct("speling");
+ * </pre>
+ */
+public class ShardedCorrector implements Closeable {
+
+    // longest word whose edits still fit the protocol's short lengths
+    static final int MAX_WORD_LENGTH = 0xFFFF - 1;
+
+    private final InetSocketAddress[] addresses;
+    private final List<ConcurrentLinkedQueue<Connection>> idle = new ArrayList<ConcurrentLinkedQueue<Connection>>();
+    private final char[] letters;
+    private final int[] shardWords;
+    private final long[] shardBytes;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile boolean closed;
+
+    private ShardedCorrector(InetSocketAddress[] addresses, Connection[] first, char[] letters) {
+        this.addresses = addresses;
+        this.letters = letters;
+        this.shardWords = new int[addresses.length];
+        this.shardBytes = new long[addresses.length];
+        for (int shard = 0; shard < addresses.length; shard++) {
+            ConcurrentLinkedQueue<Connection> connections = new ConcurrentLinkedQueue<Connection>();
+            connections.add(first[shard]);
+            idle.add(connections);
+            shardWords[shard] = first[shard].words;
+            shardBytes[shard] = first[shard].bytes;
+        }
+    }
+
+    /**
+     * Coordinator of the shards at addresses [in any order; each shard reports its index, and all of 0 .. n - 1 must be
+     * there]
+     */
+    public static ShardedCorrector connect(List<InetSocketAddress> addresses) throws IOException {
+        int n = addresses.size();
+        InetSocketAddress[] byShard = new InetSocketAddress[n];
+        Connection[] connections = new Connection[n];
+        TreeSet<Character> letters = new TreeSet<Character>();
+        try {
+            for (InetSocketAddress address : addresses) {
+                Connection connection = new Connection(address);
+                if (connection.shards != n || connections[connection.shard] != null) {
+                    connection.close();
+                    throw new IOException(address + " is shard " + connection.shard + " of " + connection.shards
+                            + ", expected one of " + n + " distinct shards");
+                }
+                connections[connection.shard] = connection;
+                byShard[connection.shard] = address;
+                for (char letter : connection.letters.toCharArray()) {
+                    letters.add(letter);
+                }
+            }
+        } catch (IOException e) {
+            for (Connection connection : connections) {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+            throw e;
+        }
+        char[] alphabet = new char[letters.size()];
+        int i = 0;
+        for (char letter : letters) {
+            alphabet[i++] = letter;
+        }
+        return new ShardedCorrector(byShard, connections, alphabet);
+    }
+
+    /**
+     * Shard owning word: its String.hashCode(), mixed, modulo shards [the same on every JVM]
+     */
+    public static int shardOf(CharSequence word, int shards) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        return shardOfHash(hash, shards);
+    }
+
+    // shardOf the word in word[0, length) [a-z bytes]
+    static int shardOf(byte[] word, int length, int shards) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i];
+        }
+        return shardOfHash(hash, shards);
+    }
+
+    // shardOf the word in word[0, length)
+    static int shardOf(char[] word, int length, int shards) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + word[i];
+        }
+        return shardOfHash(hash, shards);
+    }
+
+    private static int shardOfHash(int hash, int shards) {
+        hash *= 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards);
+    }
+
+    public String correct(String word) throws IOException {
+        word = word.toLowerCase();
+        if (word.length() > MAX_WORD_LENGTH) {
+            throw new IllegalArgumentException("word longer than " + MAX_WORD_LENGTH + " chars");
+        }
+
+        // known word - no correction needed
+        if (probe(Collections.singletonList(word))[0] != 0) {
+            return word;
+        }
+
+        // edit distance 1 candidates
+        HashSet<String> candidates1 = new HashSet<String>();
+        addEdit1Candidates(word, candidates1);
+        List<String> edits1 = new ArrayList<String>(candidates1);
+        String bestCandidate = bestCandidate(edits1, probe(edits1));
+        if (bestCandidate != null) {
+            return bestCandidate;
+        }
+
+        // edit distance 2 candidates: edit1 of all the edit1 candidates
+        HashSet<String> candidates2 = new HashSet<String>();
+        for (String candidate : edits1) {
+            addEdit1Candidates(candidate, candidates2);
+        }
+        List<String> edits2 = new ArrayList<String>(candidates2);
+        bestCandidate = bestCandidate(edits2, probe(edits2));
+        return bestCandidate != null ? bestCandidate : word;
+    }
+
+    public int shards() {
+        return addresses.length;
+    }
+
+    // words held by shard, as it reported on connect
+    public int shardWords(int shard) {
+        return shardWords[shard];
+    }
+
+    // bytes of shard's frequency table, as it reported on connect
+    public long shardBytes(int shard) {
+        return shardBytes[shard];
+    }
+
+    // candidate strings sent to shards so far
+    public long probes() {
+        return probes.sum();
+    }
+
+    // requests sent to shards so far [one per shard per round trip]
+    public long batches() {
+        return batches.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ConcurrentLinkedQueue<Connection> connections : idle) {
+            Connection connection;
+            while ((connection = connections.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    // the most frequent candidate, the first among equals; null if none is known
+    private static String bestCandidate(List<String> candidates, int[] frequencies) {
+        int max = 0;
+        String bestCandidate = null;
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] > max) {
+                max = frequencies[i];
+                bestCandidate = candidates.get(i);
+            }
+        }
+        return bestCandidate;
+    }
+
+    // all strings at edit distance 1 of word [as WordModel.addEdit1Candidates, over this coordinator's letters]
+    private void addEdit1Candidates(String word, Set<String> candidates) {
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            candidates.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < length - 1; i++) {
+            char swap = chars[i];
+            chars[i] = chars[i + 1];
+            chars[i + 1] = swap;
+            candidates.add(new String(chars));
+            chars[i + 1] = chars[i];
+            chars[i] = swap;
+        }
+        for (int i = 0; i < length; i++) {
+            char oldChar = chars[i];
+            for (char letter : letters) {
+                chars[i] = letter;
+                candidates.add(new String(chars));
+            }
+            chars[i] = oldChar;
+        }
+        for (int i = 0; i <= length; i++) {
+            for (char letter : letters) {
+                candidates.add(word.substring(0, i) + letter + word.substring(i));
+            }
+        }
+    }
+
+    /**
+     * Frequency of every word [0 if unknown]: one batch per shard, all sent before any answer is read
+     */
+    private int[] probe(List<String> words) throws IOException {
+        int n = addresses.length;
+        int[] counts = new int[n];
+        int[] shardOfWord = new int[words.size()];
+        boolean wide = false;
+        for (int i = 0; i < shardOfWord.length; i++) {
+            String word = words.get(i);
+            shardOfWord[i] = shardOf(word, n);
+            counts[shardOfWord[i]]++;
+            for (int c = 0; c < word.length() && !wide; c++) {
+                wide = word.charAt(c) > 0xFF;
+            }
+        }
+        // indexes of the words of each shard, in order
+        int[][] members = new int[n][];
+        for (int shard = 0; shard < n; shard++) {
+            members[shard] = new int[counts[shard]];
+            counts[shard] = 0;
+        }
+        for (int i = 0; i < shardOfWord.length; i++) {
+            members[shardOfWord[i]][counts[shardOfWord[i]]++] = i;
+        }
+
+        int[] frequencies = new int[words.size()];
+        Connection[] held = new Connection[n];
+        try {
+            for (int shard = 0; shard < n; shard++) {
+                if (members[shard].length > 0) {
+                    held[shard] = acquire(shard);
+                    held[shard].send(words, members[shard], wide);
+                    batches.increment();
+                }
+            }
+            for (int shard = 0; shard < n; shard++) {
+                if (held[shard] != null) {
+                    held[shard].receive(members[shard], frequencies);
+                }
+            }
+        } catch (IOException e) {
+            // a connection in an unknown protocol state cannot be reused
+            for (int shard = 0; shard < n; shard++) {
+                if (held[shard] != null) {
+                    held[shard].close();
+                    held[shard] = null;
+                }
+            }
+            throw e;
+        } finally {
+            for (int shard = 0; shard < n; shard++) {
+                if (held[shard] != null) {
+                    release(shard, held[shard]);
+                }
+            }
+        }
+        probes.add(words.size());
+        return frequencies;
+    }
+
+    private Connection acquire(int shard) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        Connection connection = idle.get(shard).poll();
+        return connection != null ? connection : new Connection(addresses[shard]);
+    }
+
+    private void release(int shard, Connection connection) {
+        idle.get(shard).add(connection);
+        if (closed && idle.get(shard).remove(connection)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * One socket to a shard, past the handshake
+     */
+    private static final class Connection {
+
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final int shard;
+        final int shards;
+        final int words;
+        final long bytes;
+        final String letters;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                if (in.readInt() != ShardServer.MAGIC) {
+                    throw new IOException(address + " is not a shard server");
+                }
+                shard = in.readInt();
+                shards = in.readInt();
+                words = in.readInt();
+                bytes = in.readLong();
+                letters = in.readUTF();
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void send(List<String> words, int[] members, boolean wide) throws IOException {
+            out.writeInt(members.length);
+            out.writeBoolean(wide);
+            for (int i : members) {
+                String word = words.get(i);
+                out.writeShort(word.length());
+                if (wide) {
+                    out.writeChars(word);
+                } else {
+                    out.writeBytes(word);
+                }
+            }
+            out.flush();
+        }
+
+        void receive(int[] members, int[] frequencies) throws IOException {
+            int hits = in.readInt();
+            for (int h = 0; h < hits; h++) {
+                int index = in.readInt();
+                frequencies[members[index]] = in.readInt();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package spellingcorrector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe spell corrector.
+ * <p>
+ * All state lives in an immutable {@link WordModel}; {@link #correct(String)} reads the current model once and works on
+ * it without locks. A reload builds the new model on the side and swaps it in atomically, so readers never wait and never
+ * see a half-built dictionary. An optional {@link CorrectionCache} remembers the corrections of misspelled words; it is
+ * invalidated whenever the model is swapped. Optional {@link CorrectorMetrics} count the outcome, search work and latency
+ * of every correct() and correctAll() word.
+ * <p>
+ * {@link #correctAll(List)} and {@link #correctStream(Stream)} correct many words at once: each distinct word is corrected
+ * once, known words are answered in the calling thread, and only the unknown ones are spread over a ForkJoinPool.
+ * <pre>
+ * SpellCorrector corrector = SpellCorrector.builder().wordsFile("big.txt").engine(Engine.SYMMETRIC_DELETE).build();
+ * corrector.correct("speling");
+ * </pre>
+ */
+public class SpellCorrector {
+
+    // distinct unknown words per fork-join leaf [an edit2 search takes about a millisecond]
+    private static final int BATCH_LEAF_SIZE = 16;
+    // words per batch when correcting a stream
+    static final int STREAM_BATCH_SIZE = 4096;
+
+    private final AtomicReference<WordModel> model;
+    private final CorrectionCache cache;
+    private final ForkJoinPool pool;
+    private final CorrectorMetrics metrics;
+    // reload counts words of any alphabet
+    private final boolean unicode;
+    // reload compacts the model alike [see WordModel#compacted]
+    private final int minCount;
+    private final int maxWords;
+    private final int frequencyBits;
+
+    private SpellCorrector(WordModel model, CorrectionCache cache, ForkJoinPool pool, CorrectorMetrics metrics, boolean unicode,
+                           int minCount, int maxWords, int frequencyBits) {
+        this.model = new AtomicReference<WordModel>(model);
+        this.cache = cache;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.unicode = unicode;
+        this.minCount = minCount;
+        this.maxWords = maxWords;
+        this.frequencyBits = frequencyBits;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String correct(String word) {
+        if (cache == null && metrics == null) {
+            return model.get().correct(word);
+        }
+
+        // generation before model: a correction computed on a model that is being replaced is never cached
+        boolean timed = (metrics != null && metrics.sampleKnown());
+        long start = (timed ? System.nanoTime() : 0);
+        String key = word.toLowerCase();
+        long generation = cache != null ? cache.generation() : 0;
+        WordModel current = model.get();
+
+        // known words are a single probe, only corrections are worth caching
+        if (current.isKnown(key)) {
+            if (timed) {
+                metrics.recordKnownSince(start);
+            } else if (metrics != null) {
+                metrics.recordKnown(1);
+            }
+            return key;
+        }
+        return correctUnknown(current, key, generation);
+    }
+
+    /**
+     * Correction of word given the word before it [see {@link WordModel#correct(String, String)}; not cached]
+     */
+    public String correct(String previousWord, String word) {
+        return model.get().correct(previousWord, word);
+    }
+
+    /**
+     * The k known words closest to word, with their distance and frequency [see {@link WordModel#suggest}; not cached]
+     */
+    public List<Suggestion> suggest(String word, int k, int maxDistance) {
+        return model.get().suggest(word, k, maxDistance);
+    }
+
+    /**
+     * Type-ahead completions of a possibly misspelled prefix [see {@link WordModel#complete}; not cached]
+     */
+    public List<Suggestion> complete(String prefix, int k, int maxDistance) {
+        return model.get().complete(prefix, k, maxDistance);
+    }
+
+    /**
+     * Corrections of words, in the same order [the same as calling correct() on each, all on one model]
+     */
+    public List<String> correctAll(List<String> words) {
+        long generation = cache != null ? cache.generation() : 0;
+        WordModel current = model.get();
+
+        // one slot per distinct lowercased word; known words are answered right away
+        HashMap<String, Integer> slots = new HashMap<String, Integer>();
+        ArrayList<String> distinct = new ArrayList<String>();
+        int[] slotOf = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            String key = word.toLowerCase();
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = distinct.size();
+                slots.put(key, slot);
+                distinct.add(key);
+            }
+            slotOf[i++] = slot;
+        }
+
+        String[] corrections = new String[distinct.size()];
+        int[] unknown = new int[distinct.size()];
+        int unknownCount = 0;
+        for (int slot = 0; slot < corrections.length; slot++) {
+            String key = distinct.get(slot);
+            if (current.isKnown(key)) {
+                corrections[slot] = key;
+            } else {
+                unknown[unknownCount++] = slot;
+            }
+        }
+        if (metrics != null) {
+            metrics.recordKnown(corrections.length - unknownCount);
+        }
+
+        CorrectTask task = new CorrectTask(current, generation, distinct, unknown, 0, unknownCount, corrections);
+        if (unknownCount <= BATCH_LEAF_SIZE) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        String[] result = new String[slotOf.length];
+        for (i = 0; i < result.length; i++) {
+            result[i] = corrections[slotOf[i]];
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Lazily corrected words, in the same order; the stream is corrected in batches of {@link #STREAM_BATCH_SIZE} words
+     * [each batch as by {@link #correctAll(List)}], so it may be arbitrarily long
+     */
+    public Stream<String> correctStream(Stream<String> words) {
+        final Iterator<String> iterator = words.iterator();
+        Iterator<List<String>> batches = new Iterator<List<String>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ArrayList<String> batch = new ArrayList<String>(STREAM_BATCH_SIZE);
+                while (batch.size() < STREAM_BATCH_SIZE && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                return correctAll(batch);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(words::close);
+    }
+
+    // correction of a lowercased word that is not known to current
+    private String correctUnknown(WordModel current, String key, long generation) {
+        if (metrics == null) {
+            return correctUnmetered(current, key, generation);
+        }
+        SearchCounters counters = SearchCounters.get();
+        long candidates = counters.candidates;
+        long probes = counters.probes;
+        long start = System.nanoTime();
+        String corrected = correctUnmetered(current, key, generation);
+        metrics.record(key, corrected, start, counters.candidates - candidates, counters.probes - probes);
+        return corrected;
+    }
+
+    private String correctUnmetered(WordModel current, String key, long generation) {
+        if (cache == null) {
+            return current.correct(key);
+        }
+        String corrected = cache.get(key);
+        if (corrected == null) {
+            corrected = current.correct(key);
+            cache.put(key, corrected, corrected.equals(key), generation);
+        }
+        return corrected;
+    }
+
+    // null if built without a cache
+    public CorrectionCache cache() {
+        return cache;
+    }
+
+    // words of any alphabet are counted, not just a-z [see Builder#unicode]
+    public boolean isUnicode() {
+        return unicode;
+    }
+
+    // pool batch corrections run on
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    // null if built without metrics
+    public CorrectorMetrics metrics() {
+        return metrics;
+    }
+
+    // the model currently serving corrections
+    public WordModel model() {
+        return model.get();
+    }
+
+    /**
+     * Atomically replace the model; calls already running finish on the old one. Returns the old model.
+     */
+    public WordModel swap(WordModel newModel) {
+        if (newModel == null) {
+            throw new IllegalArgumentException("model must not be null");
+        }
+        WordModel previous = model.getAndSet(newModel);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        return previous;
+    }
+
+    /**
+     * Rebuild the model from wordsFile [same engine, max distance, bigrams or not and error model as the current model, same
+     * alphabets and compaction as at build] and swap it in once it is complete
+     */
+    public WordModel reload(String wordsFile) throws IOException {
+        WordModel current = model.get();
+        WordModel loaded = compact(WordModel.load(wordsFile, current.engine(), current.maxDistance(), current.bigrams() != null, 1,
+                unicode));
+        return swap(current.errorModel() != null ? loaded.withErrorModel(current.errorModel()) : loaded);
+    }
+
+    // model compacted like the one built [same minCount, maxWords and frequencyBits]
+    WordModel compact(WordModel model) {
+        return model.compacted(minCount, maxWords, frequencyBits);
+    }
+
+    /**
+     * Corrects the words at unknown[from, to) into corrections, splitting the range in halves down to BATCH_LEAF_SIZE
+     */
+    private final class CorrectTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WordModel current;
+        private final long generation;
+        private final List<String> words;
+        private final int[] unknown;
+        private final int from;
+        private final int to;
+        private final String[] corrections;
+
+        CorrectTask(WordModel current, long generation, List<String> words, int[] unknown, int from, int to, String[] corrections) {
+            this.current = current;
+            this.generation = generation;
+            this.words = words;
+            this.unknown = unknown;
+            this.from = from;
+            this.to = to;
+            this.corrections = corrections;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    int slot = unknown[i];
+                    corrections[slot] = correctUnknown(current, words.get(slot), generation);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CorrectTask(current, generation, words, unknown, from, middle, corrections),
+                    new CorrectTask(current, generation, words, unknown, middle, to, corrections));
+        }
+    }
+
+    public static class Builder {
+
+        private String wordsFile;
+        private String snapshotFile;
+        private Engine engine = Engine.EDITS;
+        private int maxDistance = WordModel.DEFAULT_MAX_DISTANCE;
+        private boolean bigrams;
+        private ErrorModel errorModel;
+        private WordModel model;
+        private CorrectionCache cache;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private CorrectorMetrics metrics;
+        private boolean unicode;
+        private boolean mapped;
+        private int minCount = 1;
+        private int maxWords = Integer.MAX_VALUE;
+        private int frequencyBits = 32;
+
+        private Builder() {
+        }
+
+        // text corpus to count word frequencies from
+        public Builder wordsFile(String wordsFile) {
+            this.wordsFile = wordsFile;
+            return this;
+        }
+
+        // binary model snapshot to start from, (re)written from wordsFile when it is missing, invalid or stale [see ModelSnapshot]
+        public Builder snapshotFile(String snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        public Builder engine(Engine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        // only Engine.TRIE supports a max distance other than 2
+        public Builder maxDistance(int maxDistance) {
+            this.maxDistance = maxDistance;
+            return this;
+        }
+
+        // also count word pairs for correct(previousWord, word) [default false]
+        public Builder bigrams(boolean bigrams) {
+            this.bigrams = bigrams;
+            return this;
+        }
+
+        // rank candidates by P(c) x P(w|c) with errorModel [default null: edit1 before edit2 before frequency]
+        public Builder errorModel(ErrorModel errorModel) {
+            this.errorModel = errorModel;
+            return this;
+        }
+
+        // already built model; takes precedence over wordsFile, snapshotFile, engine, maxDistance and bigrams [errorModel,
+        // if set, replaces its error model]
+        public Builder model(WordModel model) {
+            this.model = model;
+            return this;
+        }
+
+        // cache corrections of misspelled words [default none]
+        public Builder cache(CorrectionCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        // pool that batch corrections run on [default the common pool]
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        // count outcomes, search work and latency of correct() and correctAll() [default none]
+        public Builder metrics(CorrectorMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        // count words of any alphabet in wordsFile, not just a-z [see CorpusLoader; default false]
+        public Builder unicode(boolean unicode) {
+            this.unicode = unicode;
+            return this;
+        }
+
+        // look the word table and the symmetric delete index up in the mapped snapshotFile instead of copying them to the
+        // heap [see ModelSnapshot#map; default false, not for TRIE, word pairs are still copied]; reload() still builds
+        // heap models
+        public Builder mapped(boolean mapped) {
+            this.mapped = mapped;
+            return this;
+        }
+
+        // drop words seen fewer than minCount times in wordsFile [see WordModel#compacted; default 1, every word]
+        public Builder minCount(int minCount) {
+            this.minCount = minCount;
+            return this;
+        }
+
+        // keep only the maxWords most frequent words [default Integer.MAX_VALUE, no limit]
+        public Builder maxWords(int maxWords) {
+            this.maxWords = maxWords;
+            return this;
+        }
+
+        // store word frequencies as 8 or 16-bit log-quantized codes [see FrequencyTable#quantized; default 32, exact]
+        public Builder frequencyBits(int frequencyBits) {
+            this.frequencyBits = frequencyBits;
+            return this;
+        }
+
+        public SpellCorrector build() throws IOException {
+            if (pool == null) {
+                throw new IllegalStateException("pool must not be null");
+            }
+            if (maxWords < 0 || frequencyBits != 8 && frequencyBits != 16 && frequencyBits != 32) {
+                throw new IllegalStateException("maxWords must not be negative and frequencyBits must be 8, 16 or 32");
+            }
+            WordModel loaded;
+            if (model != null) {
+                loaded = model;
+            } else {
+                if (wordsFile == null) {
+                    throw new IllegalStateException("either wordsFile or model must be set");
+                }
+                if (mapped && snapshotFile == null) {
+                    throw new IllegalStateException("a mapped model needs a snapshotFile");
+                }
+                if (mapped && (minCount > 1 || maxWords < Integer.MAX_VALUE || frequencyBits != 32)) {
+                    throw new IllegalStateException("a compacted model is built on the heap and can not be mapped");
+                }
+                if (mapped && engine == Engine.TRIE) {
+                    throw new IllegalStateException("the DAWG of TRIE is copied to the heap, use another engine to map");
+                }
+                loaded = (snapshotFile != null ? ModelSnapshot.load(snapshotFile, wordsFile, engine, maxDistance, bigrams, unicode, mapped)
+                        : WordModel.load(wordsFile, engine, maxDistance, bigrams, 1, unicode));
+            }
+            loaded = loaded.compacted(minCount, maxWords, frequencyBits);
+            return new SpellCorrector(errorModel != null ? loaded.withErrorModel(errorModel) : loaded, cache, pool, metrics, unicode,
+                    minCount, maxWords, frequencyBits);
+        }
+    }
+}
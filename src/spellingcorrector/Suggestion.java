@@ -0,0 +1,43 @@
+package spellingcorrector;
+
+/**
+ * A candidate correction with what it was ranked by
+ */
+public final class Suggestion {
+
+    private final String word;
+    private final int distance;
+    private final int frequency;
+    private final double score;
+
+    public Suggestion(String word, int distance, int frequency, double score) {
+        this.word = word;
+        this.distance = distance;
+        this.frequency = frequency;
+        this.score = score;
+    }
+
+    public String word() {
+        return word;
+    }
+
+    // edit distance from the word being corrected
+    public int distance() {
+        return distance;
+    }
+
+    // frequency in the model [smoothed count]
+    public int frequency() {
+        return frequency;
+    }
+
+    // higher is better; meaning depends on the ranking [e.g. log P(c) + log P(w|c)]
+    public double score() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "{'word': '" + word + "', 'distance': " + distance + ", 'frequency': " + frequency + ", 'score': " + score + "}";
+    }
+}
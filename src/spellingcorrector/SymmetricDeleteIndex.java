@@ -0,0 +1,314 @@
+package spellingcorrector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Symmetric delete index [SymSpell, https://github.com/wolfgarbe/SymSpell]
+ * <p>
+ * Every string obtained by deleting up to {@link #MAX_DISTANCE} letters from a dictionary word is mapped back to that word.
+ * Two words within edit distance 2 always share such a delete variant, so a lookup only has to generate the deletes of
+ * the input word (a few hundred strings at most) instead of every edit1 and edit2 string (~100k for a long word).
+ * The candidates found this way are verified with the exact edit distance before they are ranked.
+ * <p>
+ * The index is packed into three arrays: the 64-bit hashes of all distinct deletes, ascending, and per hash the ids of
+ * its words [postings, ascending]. It holds no String and is stored in a {@link ModelSnapshot} as it is; a mapped
+ * snapshot's index is searched in place.
+ */
+public class SymmetricDeleteIndex {
+
+    public static final int MAX_DISTANCE = 2;
+
+    private final FrequencyTable nWords;
+    // hashes of the distinct deletes, ascending
+    private final long[] keys;
+    // the words with delete keys[i] are ids[offsets[i], offsets[i + 1])
+    private final int[] offsets;
+    private final int[] ids;
+    // views of a mapped snapshot in place of the arrays above [which are null then], see map()
+    private final LongBuffer mappedKeys;
+    private final IntBuffer mappedOffsets;
+    private final IntBuffer mappedIds;
+
+    public SymmetricDeleteIndex(FrequencyTable nWords) {
+        this.nWords = nWords;
+
+        // every (delete, word) pair in word order, then grouped by delete
+        long[] pairKeys = new long[Math.max(16, nWords.size() * 16)];
+        int[] pairIds = new int[pairKeys.length];
+        int pairs = 0;
+        for (int id = 0; id < nWords.size(); id++) {
+            long[] wordKeys = deleteKeys(nWords.word(id));
+            if (pairs + wordKeys.length > pairKeys.length) {
+                int capacity = Math.max(pairs + wordKeys.length, pairKeys.length * 2);
+                pairKeys = Arrays.copyOf(pairKeys, capacity);
+                pairIds = Arrays.copyOf(pairIds, capacity);
+            }
+            for (long key : wordKeys) {
+                pairKeys[pairs] = key;
+                pairIds[pairs++] = id;
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(pairKeys, pairs);
+        Arrays.sort(sorted);
+        keys = Arrays.copyOf(sorted, distinct(sorted, sorted.length));
+        offsets = new int[keys.length + 1];
+        int[] positions = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            positions[i] = Arrays.binarySearch(keys, pairKeys[i]);
+            offsets[positions[i] + 1]++;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        ids = new int[pairs];
+        int[] next = Arrays.copyOf(offsets, keys.length);
+        for (int i = 0; i < pairs; i++) {
+            ids[next[positions[i]]++] = pairIds[i];
+        }
+        mappedKeys = null;
+        mappedOffsets = null;
+        mappedIds = null;
+    }
+
+    private SymmetricDeleteIndex(FrequencyTable nWords, long[] keys, int[] offsets, int[] ids) {
+        this.nWords = nWords;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.ids = ids;
+        this.mappedKeys = null;
+        this.mappedOffsets = null;
+        this.mappedIds = null;
+    }
+
+    private SymmetricDeleteIndex(FrequencyTable nWords, LongBuffer keys, IntBuffer offsets, IntBuffer ids) {
+        this.nWords = nWords;
+        this.keys = null;
+        this.offsets = null;
+        this.ids = null;
+        this.mappedKeys = keys;
+        this.mappedOffsets = offsets;
+        this.mappedIds = ids;
+    }
+
+    /**
+     * Same ranking as {@link WordModel#correct(String)}: any known word at distance 1 beats any known word at distance 2,
+     * the most frequent word wins within a distance [ties: the lowest id]. Returns null if there is no known word within
+     * distance 2.
+     */
+    public String bestCandidate(String word) {
+        long[] wordKeys = deleteKeys(word);
+
+        // candidate ids, then each one once
+        int[] candidates = new int[64];
+        int count = 0;
+        SearchCounters counters = SearchCounters.get();
+        counters.probes += wordKeys.length;
+        for (long key : wordKeys) {
+            int i = find(key);
+            if (i < 0) {
+                continue;
+            }
+            int from = offset(i);
+            int to = offset(i + 1);
+            if (count + to - from > candidates.length) {
+                candidates = Arrays.copyOf(candidates, Math.max(count + to - from, candidates.length * 2));
+            }
+            if (ids != null) {
+                System.arraycopy(ids, from, candidates, count, to - from);
+            } else {
+                for (int p = from; p < to; p++) {
+                    candidates[count + p - from] = mappedIds.get(p);
+                }
+            }
+            count += to - from;
+        }
+        Arrays.sort(candidates, 0, count);
+
+        String best1 = null;
+        String best2 = null;
+        int max1 = 0;
+        int max2 = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            if ((i > 0 && id == candidates[i - 1]) || Math.abs(nWords.length(id) - word.length()) > MAX_DISTANCE) {
+                continue;
+            }
+
+            counters.candidates++;
+            String candidate = nWords.word(id);
+            int frequency = nWords.frequency(id);
+            int distance = distance(word, candidate);
+            if (distance <= 1 && frequency > max1) {
+                max1 = frequency;
+                best1 = candidate;
+            } else if (distance == 2 && frequency > max2) {
+                max2 = frequency;
+                best2 = candidate;
+            }
+        }
+        return best1 != null ? best1 : best2;
+    }
+
+    // number of distinct deletes
+    public int size() {
+        return keys != null ? keys.length : mappedKeys.capacity();
+    }
+
+    // the arrays as they are [see ModelSnapshot]
+    void write(DataOutputStream out) throws IOException {
+        if (keys != null) {
+            ModelSnapshot.writeLongs(out, keys);
+            ModelSnapshot.writeInts(out, offsets);
+            ModelSnapshot.writeInts(out, ids);
+        } else {
+            ModelSnapshot.writeLongs(out, mappedKeys);
+            ModelSnapshot.writeInts(out, mappedOffsets);
+            ModelSnapshot.writeInts(out, mappedIds);
+        }
+    }
+
+    // index of nWords written by write(), read with bulk copies only
+    static SymmetricDeleteIndex read(ByteBuffer in, FrequencyTable nWords) throws IOException {
+        long[] keys = ModelSnapshot.readLongs(in);
+        int[] offsets = ModelSnapshot.readInts(in);
+        int[] ids = ModelSnapshot.readInts(in);
+        if (offsets.length != keys.length + 1 || offsets[0] != 0 || offsets[keys.length] != ids.length) {
+            throw new IOException("corrupt delete index");
+        }
+        return new SymmetricDeleteIndex(nWords, keys, offsets, ids);
+    }
+
+    // index written by write(), left in the mapped snapshot: nothing is copied
+    static SymmetricDeleteIndex map(ModelSnapshot.Mapping in, FrequencyTable nWords) throws IOException {
+        LongBuffer keys = in.longs();
+        IntBuffer offsets = in.ints();
+        IntBuffer ids = in.ints();
+        if (offsets.capacity() != keys.capacity() + 1 || offsets.get(0) != 0 || offsets.get(keys.capacity()) != ids.capacity()) {
+            throw new IOException("corrupt delete index");
+        }
+        return new SymmetricDeleteIndex(nWords, keys, offsets, ids);
+    }
+
+    // position of key in keys, -1 if it is not there
+    private int find(long key) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = (keys != null ? keys[middle] : mappedKeys.get(middle));
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int offset(int i) {
+        return offsets != null ? offsets[i] : mappedOffsets.get(i);
+    }
+
+    /**
+     * Hashes of word and of all strings obtained by deleting up to MAX_DISTANCE letters from it, each once, ascending
+     */
+    static long[] deleteKeys(CharSequence word) {
+        int n = word.length();
+        long[] keys = new long[1 + n + n * (n - 1) / 2];
+        int count = 0;
+        keys[count++] = hash(word, -1, -1);
+        for (int i = 0; i < n; i++) {
+            keys[count++] = hash(word, i, -1);
+            for (int j = i + 1; j < n; j++) {
+                keys[count++] = hash(word, i, j);
+            }
+        }
+        Arrays.sort(keys);
+        return Arrays.copyOf(keys, distinct(keys, count));
+    }
+
+    // 64-bit FNV-1a of the chars of word but those at skip1 and skip2 [-1: none], so deletes never become Strings
+    private static long hash(CharSequence word, int skip1, int skip2) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            if (i != skip1 && i != skip2) {
+                hash = (hash ^ word.charAt(i)) * 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    // moves the distinct values of the sorted values[0, count) to its front; returns how many
+    private static int distinct(long[] values, int count) {
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Unrestricted Damerau-Levenshtein distance [Lowrance-Wagner]: the minimum number of deletions, transpositions,
+     * alterations and insertions, applied one after another, that turn a into b - which is exactly how
+     * {@link WordModel#addEdit1Candidates} builds edit2 strings out of edit1 strings.
+     * Letters outside a-z are looked up by scanning a rather than through the last-row index.
+     */
+    static int distance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int infinity = n + m;
+        int[][] d = new int[n + 2][m + 2];
+        int[] lastRow = new int[26];
+
+        d[0][0] = infinity;
+        for (int i = 0; i <= n; i++) {
+            d[i + 1][0] = infinity;
+            d[i + 1][1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j + 1] = infinity;
+            d[1][j + 1] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            char ca = a.charAt(i - 1);
+            int lastMatchColumn = 0;
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int i1 = (cb >= 'a' && cb <= 'z') ? lastRow[cb - 'a'] : lastRow(a, i, cb);
+                int j1 = lastMatchColumn;
+                int cost = 1;
+                if (ca == cb) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                d[i + 1][j + 1] = Math.min(Math.min(d[i][j] + cost, d[i + 1][j] + 1),
+                        Math.min(d[i][j + 1] + 1, d[i1][j1] + (i - i1 - 1) + 1 + (j - j1 - 1)));
+            }
+            if (ca >= 'a' && ca <= 'z') {
+                lastRow[ca - 'a'] = i;
+            }
+        }
+        return d[n + 1][m + 1];
+    }
+
+    // last row above row i whose letter of a is letter, 0 if none
+    private static int lastRow(String a, int i, char letter) {
+        for (int row = i - 1; row > 0; row--) {
+            if (a.charAt(row - 1) == letter) {
+                return row;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,124 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The misspelling test sets of Norvig's essay, read from text files in {@link #DATA_DIR} on first use.
+ * <p>
+ * One line per correct word: "right: wrong1 wrong2 ..." [the format of spell-testset1.txt and spell-testset2.txt]. A
+ * test set is a map from the correct word to its space separated misspellings, in file order.
+ */
+public final class TestSets {
+
+    // directory holding the test set files
+    public static String DATA_DIR = "data";
+    public static final String TEST1 = "spell-testset1.txt";
+    public static final String TEST2 = "spell-testset2.txt";
+
+    private TestSets() {
+    }
+
+    // development set
+    public static Map<String, String> test1() {
+        return Test1.WORDS;
+    }
+
+    // held-out set
+    public static Map<String, String> test2() {
+        return Test2.WORDS;
+    }
+
+    // the misspellings of both sets, in file order
+    public static List<String> misspellings() {
+        List<String> misspellings = new ArrayList<String>();
+        for (Map<String, String> testWords : Arrays.asList(test1(), test2())) {
+            for (String wrongs : testWords.values()) {
+                misspellings.addAll(Arrays.asList(wrongs.split(" ")));
+            }
+        }
+        return misspellings;
+    }
+
+    // each correct word of both sets followed by its misspellings, in file order
+    public static List<String> words() {
+        List<String> words = new ArrayList<String>();
+        for (Map<String, String> testWords : Arrays.asList(test1(), test2())) {
+            for (Map.Entry<String, String> entry : testWords.entrySet()) {
+                words.add(entry.getKey());
+                words.addAll(Arrays.asList(entry.getValue().split(" ")));
+            }
+        }
+        return words;
+    }
+
+    // the correct words of both sets, in file order
+    public static List<String> correctWords() {
+        List<String> words = new ArrayList<String>(test1().keySet());
+        words.addAll(test2().keySet());
+        return words;
+    }
+
+    /**
+     * Test set from file [unmodifiable]; a word listed twice keeps the misspellings of both lines
+     */
+    public static Map<String, String> load(String file) throws IOException {
+        Map<String, String> testWords = new LinkedHashMap<String, String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    throw new IOException(file + ":" + number + ": expected 'right: wrong1 wrong2 ...'");
+                }
+                String right = line.substring(0, colon).trim();
+                String wrong = line.substring(colon + 1).trim().replaceAll("\\s+", " ");
+                if (wrong.isEmpty()) {
+                    throw new IOException(file + ":" + number + ": no misspellings of " + right);
+                }
+                String previous = testWords.get(right);
+                testWords.put(right, previous != null ? previous + " " + wrong : wrong);
+            }
+        } finally {
+            reader.close();
+        }
+        return Collections.unmodifiableMap(testWords);
+    }
+
+    private static Map<String, String> loadDataFile(String name) {
+        try {
+            return load(new File(DATA_DIR, name).getPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read test set " + name + " from " + DATA_DIR, e);
+        }
+    }
+
+    // loaded when test1() is first called
+    private static final class Test1 {
+
+        static final Map<String, String> WORDS = loadDataFile(TEST1);
+    }
+
+    private static final class Test2 {
+
+        static final Map<String, String> WORDS = loadDataFile(TEST2);
+    }
+}
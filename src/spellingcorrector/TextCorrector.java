@@ -0,0 +1,321 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Corrects running text in place: every word is replaced by its correction with the original capitalization, and
+ * everything else [punctuation, spacing, line breaks] is copied unchanged. Words are whole runs of letters of any
+ * alphabet [see {@link TextTokenizer}]; unless the corrector reads words of any alphabet [see
+ * {@link SpellCorrector.Builder#unicode}], a word with a letter beyond a-z is copied unchanged too.
+ * <p>
+ * Text is read in chunks of chunkChars chars cut after the last non-letter, so no word spans two chunks. A chunk is
+ * tokenized in place by {@link TextTokenizer} into word offsets, known words are looked up straight from the chunk
+ * [no String per known word], and the distinct unknown words go to {@link SpellCorrector#correctAll} in one batch.
+ * Up to inFlight chunks are corrected at once on the pool while earlier ones are written out in order, so memory stays
+ * at about inFlight x chunkChars chars whatever the input size. A word longer than a whole chunk is cut in two.
+ * <pre>
+ * java spellingcorrector.TextCorrector in.txt out.txt big.txt
+ * </pre>
+ */
+public class TextCorrector {
+
+    public static final int DEFAULT_CHUNK_CHARS = 1 << 20;
+
+    private final SpellCorrector corrector;
+    private final int chunkChars;
+    private final int inFlight;
+    private final ForkJoinPool pool;
+
+    private TextCorrector(SpellCorrector corrector, int chunkChars, int inFlight, ForkJoinPool pool) {
+        this.corrector = corrector;
+        this.chunkChars = chunkChars;
+        this.inFlight = inFlight;
+        this.pool = pool;
+    }
+
+    public static Builder builder(SpellCorrector corrector) {
+        return new Builder(corrector);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TextCorrector <in> <out> [wordsFile [snapshotFile]]");
+            return;
+        }
+        String wordsFile = args.length > 2 ? args[2] : SpellCorrect.WORDS_FILE;
+        SpellCorrector corrector = SpellCorrector.builder().wordsFile(wordsFile)
+                .snapshotFile(args.length > 3 ? args[3] : null).build();
+        TextCorrector text = builder(corrector).build();
+
+        File in = new File(args[0]);
+        long start = System.nanoTime();
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(in), StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8));
+        Stats stats;
+        try {
+            stats = text.correct(reader, writer);
+        } finally {
+            reader.close();
+            writer.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("{'bytes': " + in.length() + ", 'words': " + stats.words + ", 'corrected': " + stats.corrected
+                + ", 'secs': " + String.format("%.2f", seconds) + ", 'MB/s': " + String.format("%.1f", in.length() / 1e6 / seconds) + "}");
+    }
+
+    /**
+     * text with every word corrected
+     */
+    public String correct(CharSequence text) {
+        StringWriter out = new StringWriter(text.length() + 16);
+        try {
+            correct(new StringReader(text.toString()), out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Copy in to out with every word corrected [in and out are not closed]
+     */
+    public Stats correct(Reader in, Writer out) throws IOException {
+        Stats stats = new Stats();
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        char[] carry = new char[0];
+        int carried = 0;
+        boolean done = false;
+        try {
+            while (!done) {
+                // the word cut off at the end of the previous chunk goes first
+                char[] chars = new char[Math.max(chunkChars, carried + 1)];
+                System.arraycopy(carry, 0, chars, 0, carried);
+                int length = carried;
+                while (length < chars.length) {
+                    int read = in.read(chars, length, chars.length - length);
+                    if (read < 0) {
+                        done = true;
+                        break;
+                    }
+                    length += read;
+                }
+
+                int cut = length;
+                if (!done) {
+                    while (cut > 0 && TextTokenizer.isLetter(chars[cut - 1])) {
+                        cut--;
+                    }
+                    if (cut == 0) {
+                        cut = length;
+                    }
+                }
+                carried = length - cut;
+                carry = Arrays.copyOfRange(chars, cut, length);
+
+                final Chunk chunk = new Chunk(chars, cut);
+                pending.add(pool.submit(chunk));
+                if (pending.size() >= inFlight) {
+                    pending.poll().get().writeTo(out, stats);
+                }
+            }
+            while (!pending.isEmpty()) {
+                pending.poll().get().writeTo(out, stats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("correction failed", e.getCause());
+        }
+        return stats;
+    }
+
+    /**
+     * correction with the capitalization of original[start, end): all caps [2 letters or more], first letter, or none
+     */
+    public static String matchCase(CharSequence original, int start, int end, String correction) {
+        boolean allCaps = end - start > 1;
+        for (int i = start; i < end && allCaps; i++) {
+            allCaps = Character.isUpperCase(original.charAt(i));
+        }
+        if (allCaps) {
+            return correction.toUpperCase();
+        }
+        if (Character.isUpperCase(original.charAt(start)) && !correction.isEmpty()) {
+            return Character.toUpperCase(correction.charAt(0)) + correction.substring(1);
+        }
+        return correction;
+    }
+
+    /**
+     * Words seen and words changed
+     */
+    public static final class Stats {
+
+        private long words;
+        private long corrected;
+
+        public long words() {
+            return words;
+        }
+
+        public long corrected() {
+            return corrected;
+        }
+    }
+
+    /**
+     * chars[0, length) with the offsets of its words and, once called, the corrections of the unknown ones
+     */
+    private final class Chunk implements java.util.concurrent.Callable<Chunk> {
+
+        final char[] chars;
+        final int length;
+        int[] spans = new int[1024];
+        int words;
+        // correction of word i, null if it stays as it is
+        String[] replacements;
+
+        Chunk(char[] chars, int length) {
+            this.chars = chars;
+            this.length = length;
+        }
+
+        @Override
+        public Chunk call() {
+            FrequencyTable nWords = corrector.model().table();
+            boolean unicode = corrector.isUnicode();
+            CharBuffer text = CharBuffer.wrap(chars, 0, length);
+            TextTokenizer tokenizer = new TextTokenizer(text);
+            char[] lowercase = new char[32];
+            HashMap<String, Integer> slots = new HashMap<String, Integer>();
+            ArrayList<String> unknown = new ArrayList<String>();
+            int[] slotOf = new int[spans.length / 2];
+
+            while (tokenizer.next()) {
+                if (!unicode && !tokenizer.isAscii()) {
+                    continue;
+                }
+                int start = tokenizer.start();
+                int wordLength = tokenizer.end() - start;
+                if (2 * words == spans.length) {
+                    spans = Arrays.copyOf(spans, spans.length * 2);
+                    slotOf = Arrays.copyOf(slotOf, spans.length / 2);
+                }
+                spans[2 * words] = start;
+                spans[2 * words + 1] = start + wordLength;
+
+                if (lowercase.length < wordLength) {
+                    lowercase = new char[wordLength * 2];
+                }
+                for (int i = 0; i < wordLength; i++) {
+                    char ch = chars[start + i];
+                    lowercase[i] = (ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch < 0x80 ? ch : Character.toLowerCase(ch));
+                }
+                if (nWords.get(lowercase, 0, wordLength) > 0) {
+                    slotOf[words] = -1;
+                } else {
+                    String key = new String(lowercase, 0, wordLength);
+                    Integer slot = slots.get(key);
+                    if (slot == null) {
+                        slot = unknown.size();
+                        slots.put(key, slot);
+                        unknown.add(key);
+                    }
+                    slotOf[words] = slot;
+                }
+                words++;
+            }
+
+            List<String> corrections = corrector.correctAll(unknown);
+            replacements = new String[words];
+            for (int w = 0; w < words; w++) {
+                if (slotOf[w] >= 0) {
+                    String correction = corrections.get(slotOf[w]);
+                    if (!correction.equals(unknown.get(slotOf[w]))) {
+                        replacements[w] = matchCase(text, spans[2 * w], spans[2 * w + 1], correction);
+                    }
+                }
+            }
+            return this;
+        }
+
+        void writeTo(Writer out, Stats stats) throws IOException {
+            int from = 0;
+            for (int w = 0; w < words; w++) {
+                if (replacements[w] != null) {
+                    out.write(chars, from, spans[2 * w] - from);
+                    out.write(replacements[w]);
+                    from = spans[2 * w + 1];
+                    stats.corrected++;
+                }
+            }
+            out.write(chars, from, length - from);
+            stats.words += words;
+        }
+    }
+
+    public static class Builder {
+
+        private final SpellCorrector corrector;
+        private int chunkChars = DEFAULT_CHUNK_CHARS;
+        private int inFlight = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private Builder(SpellCorrector corrector) {
+            this.corrector = corrector;
+        }
+
+        // chars read per chunk [default 1M]
+        public Builder chunkChars(int chunkChars) {
+            this.chunkChars = chunkChars;
+            return this;
+        }
+
+        // chunks read ahead while earlier ones are corrected [default: one per processor, at least 2]
+        public Builder inFlight(int inFlight) {
+            this.inFlight = inFlight;
+            return this;
+        }
+
+        // where chunks are corrected [default the common pool]
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public TextCorrector build() {
+            if (corrector == null) {
+                throw new IllegalStateException("corrector must be set");
+            }
+            if (chunkChars < 1 || inFlight < 1) {
+                throw new IllegalStateException("chunkChars and inFlight must be positive: " + chunkChars + ", " + inFlight);
+            }
+            if (pool == null) {
+                throw new IllegalStateException("pool must be set");
+            }
+            return new TextCorrector(corrector, chunkChars, inFlight, pool);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package spellingcorrector;
+
+/**
+ * Finds the words of a text in place: each call to {@link #next()} moves to the next maximal run of letters
+ * [Character.isLetter, as a unicode {@link CorpusLoader} reads words] and exposes its offsets, so a word with a letter
+ * beyond ASCII is never cut into pieces; {@link #isAscii()} tells the words of the default a-z loader apart. Nothing is
+ * copied, so a {@link java.nio.CharBuffer} or a StringBuilder can be scanned as is; everything between words is left to
+ * the caller.
+ * <pre>
+ * TextTokenizer words = new TextTokenizer(text);
+ * while (words.next()) {
+ *     ... text.subSequence(words.start(), words.end()) ...
+ * }
+ * </pre>
+ */
+public final class TextTokenizer {
+
+    private final CharSequence text;
+    private final int limit;
+    private int position;
+    private int start;
+    private int end;
+    private boolean ascii;
+
+    public TextTokenizer(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    // words of text[from, to)
+    public TextTokenizer(CharSequence text, int from, int to) {
+        this.text = text;
+        this.position = from;
+        this.limit = to;
+    }
+
+    /**
+     * Move to the next word; false if there is none
+     */
+    public boolean next() {
+        while (position < limit && !isLetter(text.charAt(position))) {
+            position++;
+        }
+        if (position == limit) {
+            return false;
+        }
+        start = position;
+        ascii = true;
+        for (char ch; position < limit && isLetter(ch = text.charAt(position)); position++) {
+            ascii &= (ch < 0x80);
+        }
+        end = position;
+        return true;
+    }
+
+    // offset of the current word's first char
+    public int start() {
+        return start;
+    }
+
+    // offset just past the current word
+    public int end() {
+        return end;
+    }
+
+    // the current word has only a-z and A-Z
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    public static boolean isLetter(char ch) {
+        return Character.isLetter(ch);
+    }
+}
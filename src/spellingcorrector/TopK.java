@@ -0,0 +1,208 @@
+package spellingcorrector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the k highest scoring word ids out of a stream of candidates, in a fixed-size binary min-heap of primitive
+ * arrays [the root is the worst one kept, so a candidate that does not beat it is rejected in O(1)].
+ * <p>
+ * An id is kept once: offering an id already in the heap only replaces its score [and distance] if the new score is
+ * higher. A small open-addressing set maps the kept ids to their heap positions, so that check does not scan the heap.
+ * One instance is kept per thread [see {@link #get()}] and reused by every selection, so selecting allocates nothing
+ * until {@link #drain} builds the result; arrays grown for a k above {@link #RETAINED} are dropped again by the next
+ * smaller selection.
+ */
+final class TopK {
+
+    private static final ThreadLocal<TopK> HEAPS = new ThreadLocal<TopK>() {
+        @Override
+        protected TopK initialValue() {
+            return new TopK();
+        }
+    };
+
+    static final int RETAINED = 64;
+
+    private double[] scores = new double[16];
+    private int[] ids = new int[16];
+    private int[] distances = new int[16];
+    // id + 1 [0 = empty slot] and heap position of every kept id, linear probing
+    private int[] slotIds = new int[32];
+    private int[] slotPositions = new int[32];
+    private int k;
+    private int size;
+
+    static TopK get() {
+        return HEAPS.get();
+    }
+
+    /**
+     * Score ranking by distance, then frequency [exact: frequency < 2^32]
+     */
+    static double rank(int distance, int frequency) {
+        return -distance * 4294967296.0 + frequency;
+    }
+
+    /**
+     * Empty the heap and keep the best k from now on, but no more than limit [the number of ids there are to select
+     * from, e.g. the size of the word table]
+     */
+    void reset(int k, int limit) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        k = Math.max(1, Math.min(k, limit));
+        if (scores.length < k || scores.length > Math.max(k, RETAINED)) {
+            int capacity = Math.max(16, k);
+            scores = new double[capacity];
+            ids = new int[capacity];
+            distances = new int[capacity];
+            slotIds = new int[Integer.highestOneBit(capacity) * 4];
+            slotPositions = new int[slotIds.length];
+        } else {
+            Arrays.fill(slotIds, 0);
+        }
+        this.k = k;
+        this.size = 0;
+    }
+
+    // a candidate with this score would be kept
+    boolean accepts(double score) {
+        return size < k || score > scores[0];
+    }
+
+    void offer(double score, int id, int distance) {
+        if (!accepts(score)) {
+            return;
+        }
+        int slot = slot(id);
+        if (slotIds[slot] != 0) {
+            int i = slotPositions[slot];
+            if (score > scores[i]) {
+                siftDown(i, score, id, distance);
+            }
+            return;
+        }
+        if (size < k) {
+            slotIds[slot] = id + 1;
+            // sift up from the new leaf
+            int i = size++;
+            while (i > 0 && scores[(i - 1) >> 1] > score) {
+                int parent = (i - 1) >> 1;
+                move(parent, i);
+                i = parent;
+            }
+            set(i, score, id, distance);
+        } else {
+            // replace the root and sift down
+            remove(ids[0]);
+            slotIds[slot(id)] = id + 1;
+            siftDown(0, score, id, distance);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // how many are kept at most
+    int k() {
+        return k;
+    }
+
+    /**
+     * The kept candidates, best first, as suggestions of nWords; empties the heap
+     */
+    List<Suggestion> drain(FrequencyTable nWords) {
+        Suggestion[] sorted = new Suggestion[size];
+        while (size > 0) {
+            sorted[size - 1] = new Suggestion(nWords.word(ids[0]), distances[0], nWords.frequency(ids[0]), scores[0]);
+            size--;
+            if (size > 0) {
+                siftDown(0, scores[size], ids[size], distances[size]);
+            }
+        }
+        List<Suggestion> suggestions = new ArrayList<Suggestion>(sorted.length);
+        for (Suggestion suggestion : sorted) {
+            suggestions.add(suggestion);
+        }
+        return suggestions;
+    }
+
+    /**
+     * The kept ids, best first, into ids[offset ..]; empties the heap and returns how many
+     */
+    int drainIds(int[] ids, int offset) {
+        int count = size;
+        while (size > 0) {
+            ids[offset + size - 1] = this.ids[0];
+            size--;
+            if (size > 0) {
+                siftDown(0, scores[size], this.ids[size], distances[size]);
+            }
+        }
+        return count;
+    }
+
+    // put the entry at i [whose score it does not lower] and move it down to its place
+    private void siftDown(int i, double score, int id, int distance) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= score) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        set(i, score, id, distance);
+    }
+
+    private void move(int from, int to) {
+        set(to, scores[from], ids[from], distances[from]);
+    }
+
+    private void set(int i, double score, int id, int distance) {
+        scores[i] = score;
+        ids[i] = id;
+        distances[i] = distance;
+        slotPositions[slot(id)] = i;
+    }
+
+    // slot of id in the position set, or the empty slot it would take
+    private int slot(int id) {
+        int mask = slotIds.length - 1;
+        int slot = mix(id) & mask;
+        while (slotIds[slot] != 0 && slotIds[slot] != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // take id out of the position set, moving later entries of its probe run back [no tombstones]
+    private void remove(int id) {
+        int mask = slotIds.length - 1;
+        int empty = slot(id);
+        for (int next = (empty + 1) & mask; slotIds[next] != 0; next = (next + 1) & mask) {
+            int home = mix(slotIds[next] - 1) & mask;
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                slotIds[empty] = slotIds[next];
+                slotPositions[empty] = slotPositions[next];
+                empty = next;
+            }
+        }
+        slotIds[empty] = 0;
+    }
+
+    private static int mix(int id) {
+        id *= 0x9E3779B9;
+        return id ^ (id >>> 16);
+    }
+}
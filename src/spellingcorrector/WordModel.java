@@ -0,0 +1,473 @@
+package spellingcorrector;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Frozen word frequency model [P(c)] plus the index the configured {@link Engine} searches.
+ * <p>
+ * Optionally also a bigram model [P(c|previous word)] for {@link #correct(String, String)}, interpolated with the word
+ * frequencies: P(c|p) = {@link #BIGRAM_WEIGHT} x count(p c) / count(p) + (1 - {@link #BIGRAM_WEIGHT}) x count(c) / N.
+ * And optionally a weighted {@link ErrorModel} [P(w|c)] that replaces the trivial one [see {@link #withErrorModel}].
+ * <p>
+ * A model is never modified once constructed [the {@link PrefixIndex} for {@link #complete} is built on first use], so
+ * any number of threads can call {@link #correct(String)} on it without locking. To pick up a new dictionary build a
+ * new model and swap it in [see {@link SpellCorrector#swap}].
+ */
+public final class WordModel {
+
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+    public static final double BIGRAM_WEIGHT = 0.8;
+    private static final ErrorModel KEYBOARD = ErrorModel.keyboard();
+
+    private final FrequencyTable nWords;
+    private final FrequencyBounds bounds;
+    private final Alphabet alphabet;
+    private final BigramTable bigrams;
+    // corpus words [frequencies minus the smoothing seed]
+    private final long totalCount;
+    private final Engine engine;
+    private final int maxDistance;
+    private final SymmetricDeleteIndex deleteIndex;
+    private final Dawg dawg;
+    private final ErrorModel errorModel;
+    // built on first complete(); racing threads may each build one, any of them will do
+    private volatile PrefixIndex prefixIndex;
+
+    public WordModel(Map<String, Integer> nWords, Engine engine) {
+        this(FrequencyTable.of(nWords), engine);
+    }
+
+    public WordModel(FrequencyTable nWords, Engine engine) {
+        this(nWords, engine, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * maxDistance other than {@link #DEFAULT_MAX_DISTANCE} is only supported by {@link Engine#TRIE}
+     */
+    public WordModel(FrequencyTable nWords, Engine engine, int maxDistance) {
+        this(nWords, null, engine, maxDistance);
+    }
+
+    /**
+     * bigrams [may be null] must use the ids of nWords
+     */
+    public WordModel(FrequencyTable nWords, BigramTable bigrams, Engine engine, int maxDistance) {
+        if (maxDistance != DEFAULT_MAX_DISTANCE && engine != Engine.TRIE) {
+            throw new IllegalArgumentException(engine + " only supports max distance " + DEFAULT_MAX_DISTANCE + ": " + maxDistance);
+        }
+        this.nWords = nWords;
+        this.bounds = new FrequencyBounds(nWords);
+        this.alphabet = Alphabet.of(nWords);
+        this.bigrams = bigrams;
+        this.totalCount = totalCount(nWords);
+        this.engine = engine;
+        this.maxDistance = maxDistance;
+        this.deleteIndex = (engine == Engine.SYMMETRIC_DELETE ? new SymmetricDeleteIndex(this.nWords) : null);
+        this.dawg = (engine == Engine.TRIE ? new Dawg(this.nWords, maxDistance) : null);
+        this.errorModel = null;
+    }
+
+    // model from already built parts [read from a snapshot; deleteIndex and dawg null unless the engine uses them]
+    WordModel(FrequencyTable nWords, FrequencyBounds bounds, Alphabet alphabet, BigramTable bigrams, Engine engine,
+              SymmetricDeleteIndex deleteIndex, Dawg dawg) {
+        this.nWords = nWords;
+        this.bounds = bounds;
+        this.alphabet = alphabet;
+        this.bigrams = bigrams;
+        this.totalCount = totalCount(nWords);
+        this.engine = engine;
+        this.maxDistance = (dawg != null ? dawg.maxDistance() : DEFAULT_MAX_DISTANCE);
+        this.deleteIndex = deleteIndex;
+        this.dawg = dawg;
+        this.errorModel = null;
+    }
+
+    // same model and indexes with another error model
+    private WordModel(WordModel model, ErrorModel errorModel) {
+        this.nWords = model.nWords;
+        this.bounds = model.bounds;
+        this.alphabet = model.alphabet;
+        this.bigrams = model.bigrams;
+        this.totalCount = model.totalCount;
+        this.engine = model.engine;
+        this.maxDistance = model.maxDistance;
+        this.deleteIndex = model.deleteIndex;
+        this.dawg = model.dawg;
+        this.errorModel = errorModel;
+    }
+
+    /**
+     * This model ranking candidates by P(c) x P(w|c) with errorModel [null: the trivial model, edit1 before edit2
+     * before frequency]. Candidates are always found by edits [up to distance 2], whatever the engine.
+     */
+    public WordModel withErrorModel(ErrorModel errorModel) {
+        return new WordModel(this, errorModel);
+    }
+
+    /**
+     * P(c) [language model] - get frequency of all alphabetic words (converted to lowercase) in wordsFile
+     * [counted in parallel by {@link CorpusLoader}]
+     */
+    public static WordModel load(String wordsFile, Engine engine) throws IOException {
+        return load(wordsFile, engine, DEFAULT_MAX_DISTANCE);
+    }
+
+    public static WordModel load(String wordsFile, Engine engine, int maxDistance) throws IOException {
+        return new WordModel(new CorpusLoader().countWords(wordsFile), engine, maxDistance);
+    }
+
+    /**
+     * Also count the word pairs of wordsFile if bigrams [pairs seen fewer than bigramMinCount times are dropped]
+     */
+    public static WordModel load(String wordsFile, Engine engine, int maxDistance, boolean bigrams, int bigramMinCount) throws IOException {
+        return load(wordsFile, engine, maxDistance, bigrams, bigramMinCount, false);
+    }
+
+    /**
+     * Words of any alphabet rather than a-z only if unicode [see {@link CorpusLoader}]
+     */
+    public static WordModel load(String wordsFile, Engine engine, int maxDistance, boolean bigrams, int bigramMinCount,
+                                 boolean unicode) throws IOException {
+        CorpusLoader loader = new CorpusLoader(ForkJoinPool.commonPool(), CorpusLoader.DEFAULT_CHUNK_SIZE, unicode);
+        FrequencyTable nWords = loader.countWords(wordsFile);
+        return new WordModel(nWords, bigrams ? loader.countBigrams(wordsFile, nWords, bigramMinCount) : null, engine, maxDistance);
+    }
+
+    /**
+     * This model with a smaller word table for memory-constrained deployments: words seen fewer than minCount times
+     * dropped, at most maxWords kept, frequencies stored in frequencyBits bits [see {@link FrequencyTable#pruned} and
+     * {@link FrequencyTable#quantized}; 1, Integer.MAX_VALUE and 32 change nothing]. Same engine, max distance and error
+     * model; word pairs with a dropped word are dropped too. This model itself if nothing changes.
+     */
+    public WordModel compacted(int minCount, int maxWords, int frequencyBits) {
+        FrequencyTable compact = nWords.pruned(minCount, maxWords).quantized(frequencyBits);
+        if (compact == nWords) {
+            return this;
+        }
+        WordModel model = new WordModel(compact, bigrams != null ? bigrams.remap(nWords, compact) : null, engine, maxDistance);
+        return errorModel != null ? model.withErrorModel(errorModel) : model;
+    }
+
+    private static long totalCount(FrequencyTable nWords) {
+        long total = 0;
+        for (int id = 0; id < nWords.size(); id++) {
+            total += nWords.frequency(id) - 1;
+        }
+        return total;
+    }
+
+    /**
+     * Count all alphabetic words (converted to lowercase) in wordsFile into nWords; new words start at 2 [smoothing].
+     * Single-threaded reference for {@link CorpusLoader}.
+     */
+    public static void addWordFrequency(String wordsFile, Map<String, Integer> nWords) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(wordsFile));
+        String line;
+
+        while ((line = br.readLine()) != null) {
+            // read words
+            Scanner scanner = new Scanner(line.toLowerCase()).useDelimiter(SpellCorrect.WORD_DELIM);
+            while (scanner.hasNext()) {
+                String word = scanner.next();
+                Integer currentFrequency = nWords.get(word);
+                nWords.put(word, currentFrequency == null ? 2 : ++currentFrequency);
+            }
+            scanner.close();
+        }
+        br.close();
+    }
+
+    public Engine engine() {
+        return engine;
+    }
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    public int size() {
+        return nWords.size();
+    }
+
+    public boolean isKnown(String word) {
+        return nWords.get(word) != 0;
+    }
+
+    // frequency of a known word, null for an unknown word
+    public Integer frequency(String word) {
+        int frequency = nWords.get(word);
+        return frequency != 0 ? frequency : null;
+    }
+
+    // all known words and their frequencies
+    public FrequencyTable table() {
+        return nWords;
+    }
+
+    // null if the trivial error model is used
+    public ErrorModel errorModel() {
+        return errorModel;
+    }
+
+    // word pair counts, null if the model has none
+    public BigramTable bigrams() {
+        return bigrams;
+    }
+
+    FrequencyBounds bounds() {
+        return bounds;
+    }
+
+    // the letters edits are made of
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    // null unless the engine is SYMMETRIC_DELETE
+    SymmetricDeleteIndex deleteIndex() {
+        return deleteIndex;
+    }
+
+    // null unless the engine is TRIE
+    Dawg dawg() {
+        return dawg;
+    }
+
+    /**
+     * P(w|c) [error model]
+     * Use trivial model: all known edit1 words are infinitely more probable than known edit2 words and infinitely less probable than a known word itself
+     */
+    public String correct(String word) {
+        word = word.toLowerCase();
+
+        // known word - no correction needed
+        if (nWords.get(word) != 0) {
+            return word;
+        }
+
+        // all candidates up to edit distance 2, ranked by P(c) x P(w|c)
+        if (errorModel != null) {
+            List<Suggestion> best = correctTopK(word, 1);
+            return best.isEmpty() ? word : best.get(0).word();
+        }
+
+        // edit distance 1 and 2 candidates from the precomputed delete variants
+        if (engine == Engine.SYMMETRIC_DELETE) {
+            String bestCandidate = deleteIndex.bestCandidate(word);
+            return bestCandidate != null ? bestCandidate : word;
+        }
+
+        // closest candidates up to maxDistance from a bounded walk over the dictionary trie
+        if (engine == Engine.TRIE) {
+            String bestCandidate = dawg.bestCandidate(word);
+            return bestCandidate != null ? bestCandidate : word;
+        }
+
+        // edit distance 1, then 2 candidates, scored as they are generated without building candidate sets
+        String bestCandidate = EditSearch.get().bestCandidate(nWords, bounds, alphabet, word);
+        return bestCandidate != null ? bestCandidate : word;
+    }
+
+    /**
+     * P(w|c) x P(c|previousWord): like {@link #correct(String)}, but the candidates at the smallest edit distance found
+     * [1, else 2] are ranked by their probability after previousWord rather than by frequency alone. Always searches by
+     * edits, whatever the engine; same as {@link #correct(String)} without bigrams or with an unknown previousWord.
+     */
+    public String correct(String previousWord, String word) {
+        word = word.toLowerCase();
+        if (nWords.get(word) != 0) {
+            return word;
+        }
+
+        int previousId = (bigrams != null && previousWord != null ? nWords.id(previousWord.toLowerCase()) : -1);
+        if (previousId < 0) {
+            return correct(word);
+        }
+
+        // scaled by N: BIGRAM_WEIGHT x N / count(previous) x count(previous c) + (1 - BIGRAM_WEIGHT) x count(c)
+        double bigramWeight = BIGRAM_WEIGHT * totalCount / Math.max(1, nWords.frequency(previousId) - 1);
+        String bestCandidate = EditSearch.get().bestCandidate(nWords, bounds, alphabet, bigrams, previousId, bigramWeight, 1 - BIGRAM_WEIGHT, word);
+        return bestCandidate != null ? bestCandidate : word;
+    }
+
+    /**
+     * The k most probable corrections of word [the word itself first if it is known], best first, scored by
+     * ln P(c) + ln P(w|c) [up to a constant] with this model's error model, or {@link ErrorModel#keyboard()} if it has none
+     */
+    public List<Suggestion> correctTopK(String word, int k) {
+        TopK top = TopK.get();
+        top.reset(k, nWords.size());
+        word = word.toLowerCase();
+        ErrorModel channel = (errorModel != null ? errorModel : KEYBOARD);
+        EditSearch search = EditSearch.get();
+        int count = search.collect(nWords, bounds, alphabet, word, 2);
+        int[] candidates = search.collected();
+
+        int wordId = nWords.id(word);
+        if (wordId >= 0) {
+            top.offer(Math.log(nWords.frequency(wordId)), wordId, 0);
+        }
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i] >> 2;
+            top.offer(Math.log(nWords.frequency(id)) - channel.cost(word, nWords, id), id, candidates[i] & 3);
+        }
+        return top.drain(nWords);
+    }
+
+    /**
+     * The k known words closest to word [within maxDistance, the word itself first if it is known], closest first and
+     * most frequent first among equally close ones [the ranking of {@link #correct(String)}]. Edit distance is
+     * unrestricted Damerau-Levenshtein; a maxDistance above 2 needs the {@link Engine#TRIE} engine.
+     */
+    public List<Suggestion> suggest(String word, int k, int maxDistance) {
+        if (maxDistance < 0 || (maxDistance > 2 && engine != Engine.TRIE)) {
+            throw new IllegalArgumentException("maxDistance must be in [0, 2] [any with Engine.TRIE]: " + maxDistance);
+        }
+        TopK top = TopK.get();
+        top.reset(k, nWords.size());
+        word = word.toLowerCase();
+        int wordId = nWords.id(word);
+        if (wordId >= 0) {
+            top.offer(TopK.rank(0, nWords.frequency(wordId)), wordId, 0);
+        }
+        if (maxDistance > 0 && engine == Engine.TRIE) {
+            dawg.collect(nWords, word, maxDistance, top);
+        } else if (maxDistance > 0) {
+            EditSearch.get().collect(nWords, bounds, alphabet, word, maxDistance, top);
+        }
+        return top.drain(nWords);
+    }
+
+    /**
+     * Type-ahead: the k most frequent known words starting with a prefix within maxDistance of prefix, closest first
+     * [see {@link PrefixIndex#complete(String, int, int)}]
+     */
+    public List<Suggestion> complete(String prefix, int k, int maxDistance) {
+        return prefixIndex().complete(prefix, k, maxDistance);
+    }
+
+    public PrefixIndex prefixIndex() {
+        PrefixIndex index = prefixIndex;
+        if (index == null) {
+            index = new PrefixIndex(nWords);
+            prefixIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Norvig's original search: materialize all edit1 strings, then edit1 of all of them, and pick the most frequent
+     * known one. Same result as {@link #correct(String)} with {@link Engine#EDITS}; kept as a reference and for benchmarks.
+     */
+    public String correctWithCandidateSets(String word) {
+        word = word.toLowerCase();
+
+        // known word - no correction needed
+        if (nWords.get(word) != 0) {
+            return word;
+        }
+
+        // edit distance 1 candidates
+        HashSet<String> candidates1 = new HashSet<String>();
+        addEdit1Candidates(word, candidates1, false);
+        String bestCandidate = returnBestCandidate(candidates1);
+        if (bestCandidate != null) {
+            return bestCandidate;
+        }
+
+        // edit distance 2 candidates: just apply edit1 to all the results of edit1
+        HashSet<String> candidates2 = new HashSet<String>();
+        for (String candidate : candidates1) {
+            addEdit1Candidates(candidate, candidates2, true);
+        }
+        bestCandidate = returnBestCandidate(candidates2);
+        if (bestCandidate != null) {
+            return bestCandidate;
+        }
+
+        // no known corrections
+        return word;
+    }
+
+    // return candidate with max frequency
+    public String returnBestCandidate(Set<String> candidates) {
+        int max = 0;
+        String bestCandidate = null;
+        for (String candidate : candidates) {
+            int candidateFrequency = nWords.get(candidate);
+            if (candidateFrequency > max) {
+                max = candidateFrequency;
+                bestCandidate = candidate;
+            }
+        }
+        return bestCandidate;
+    }
+
+    // valid words at edit distance 1 [letters altered to and inserted from the alphabet]
+    public void addEdit1Candidates(String word, Set<String> candidates, boolean keepOnlyKnown) {
+        int length = word.length();
+
+        // deletion (remove one letter)
+        for (int i = 0; i < length; i++) {
+            String editedWord = word.substring(0, i) + word.substring(i + 1, length);
+            if (!keepOnlyKnown || nWords.get(editedWord) != 0) {
+                candidates.add(editedWord);
+            }
+        }
+
+        // transposition (swap adjacent letters)
+        char[] wordCharArray = word.toCharArray();
+        for (int i = 0; i < length - 1; i++) {
+            char temp = wordCharArray[i];
+            wordCharArray[i] = wordCharArray[i + 1];
+            wordCharArray[i + 1] = temp;
+
+            // probe the edited chars directly, only known words need a String when keeping only known ones
+            if (!keepOnlyKnown || nWords.get(wordCharArray, 0, length) != 0) {
+                candidates.add(new String(wordCharArray));
+            }
+
+            // revert to original word
+            temp = wordCharArray[i];
+            wordCharArray[i] = wordCharArray[i + 1];
+            wordCharArray[i + 1] = temp;
+        }
+
+        // alteration (change one letter to another)
+        for (int i = 0; i < length; i++) {
+            for (int number = 1; number <= alphabet.size(); number++) {
+                char ch = alphabet.letter(number);
+                char oldChar = wordCharArray[i];
+
+                wordCharArray[i] = ch;
+
+                if (!keepOnlyKnown || nWords.get(wordCharArray, 0, length) != 0) {
+                    candidates.add(new String(wordCharArray));
+                }
+
+                // revert to original char
+                wordCharArray[i] = oldChar;
+            }
+        }
+
+        // insertion (add a letter)
+        for (int i = 0; i <= length; i++) {
+            for (int number = 1; number <= alphabet.size(); number++) {
+                char ch = alphabet.letter(number);
+                String editedWord = word.substring(0, i) + ch + word.substring(i);
+                if (!keepOnlyKnown || nWords.get(editedWord) != 0) {
+                    candidates.add(editedWord);
+                }
+            }
+        }
+    }
+}